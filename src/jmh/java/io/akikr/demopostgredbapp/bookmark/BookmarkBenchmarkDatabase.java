@@ -0,0 +1,145 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.akikr.demopostgredbapp.config.BookmarkBulkheadProperties;
+import io.akikr.demopostgredbapp.config.BookmarkCacheProperties;
+import io.akikr.demopostgredbapp.config.BookmarkCountProperties;
+import io.akikr.demopostgredbapp.config.BookmarkLookupBatchProperties;
+import io.akikr.demopostgredbapp.config.BookmarkPartitionProperties;
+import io.akikr.demopostgredbapp.config.BookmarkWriteBehindProperties;
+import io.akikr.demopostgredbapp.config.ReadYourWrites;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/// This class is the shared JMH state: one seeded PostgreSQL database per fork, wired to the bookmark classes without
+/// a Spring context so only the repository/service code and the JDBC round-trip are measured.
+/// By default a Testcontainers PostgreSQL (same image and `init.sql` as [io.akikr.demopostgredbapp.PostgreTestContainer])
+/// is started, pass `-Dbench.jdbc.url=... -Dbench.jdbc.username=... -Dbench.jdbc.password=...` to use a local database.
+/// Either way the `bookmarks` table is truncated and re-seeded with [#SEED_ROWS] rows, never point it at real data.
+
+@State(Scope.Benchmark)
+public class BookmarkBenchmarkDatabase {
+
+    static final int SEED_ROWS = 100_000;
+
+    private PostgreSQLContainer<?> postgreSQLContainer;
+    private HikariConfig hikariConfig;
+    private HikariDataSource dataSource;
+    private SimpleMeterRegistry meterRegistry;
+
+    JdbcClient jdbcClient;
+    BookmarkRepository bookmarkRepository;
+    BookmarkRepository cachedBookmarkRepository;
+    BookmarkServiceImpl bookmarkService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        hikariConfig = new HikariConfig();
+        String jdbcUrl = System.getProperty("bench.jdbc.url");
+        if (isNull(jdbcUrl)) {
+            postgreSQLContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres:17.5-alpine"))
+                    .withInitScript("init.sql");
+            postgreSQLContainer.start();
+            hikariConfig.setJdbcUrl(postgreSQLContainer.getJdbcUrl());
+            hikariConfig.setUsername(postgreSQLContainer.getUsername());
+            hikariConfig.setPassword(postgreSQLContainer.getPassword());
+        } else {
+            hikariConfig.setJdbcUrl(jdbcUrl);
+            hikariConfig.setUsername(System.getProperty("bench.jdbc.username", "postgres"));
+            hikariConfig.setPassword(System.getProperty("bench.jdbc.password", "postgres"));
+        }
+        dataSource = new HikariDataSource(hikariConfig);
+        jdbcClient = JdbcClient.create(dataSource);
+        Boolean schemaMissing = jdbcClient.sql("SELECT to_regclass('bookmarks') IS NULL").query(Boolean.class).single();
+        if (schemaMissing) {
+            // Sent as one multi-statement string, PgJDBC splits it and respects the dollar-quoted trigger function body
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute(new ClassPathResource("init.sql").getContentAsString(StandardCharsets.UTF_8));
+            }
+        }
+        seed();
+
+        meterRegistry = new SimpleMeterRegistry();
+        // Single-threaded benchmarks have nothing to coalesce, batching would only add its max wait to every miss
+        var noLookupBatching = new BookmarkLookupBatchProperties(false, Duration.ZERO, 1);
+        // The benchmarks measure the queries, so observations are a no-op
+        var noQueryObservations = new BookmarkQueryObserver(ObservationRegistry.NOOP, meterRegistry);
+        bookmarkRepository = uncachedRepository(dataSource);
+        var bookmarkCache = new BookmarkCache(
+                new BookmarkCacheProperties(true, SEED_ROWS, Duration.ofMinutes(10), Duration.ofSeconds(5)), meterRegistry);
+        cachedBookmarkRepository = new BookmarkRepository(jdbcClient, new DataSourceTransactionManager(dataSource), bookmarkCache, noLookupBatching, noQueryObservations,
+                ReadYourWrites.NONE);
+        var jsonMapper = JsonMapper.builder().build();
+        bookmarkService = new BookmarkServiceImpl(bookmarkRepository,
+                new BookmarkCounter(bookmarkRepository, new BookmarkCountProperties(BookmarkCountProperties.Mode.NONE, Duration.ofSeconds(30))),
+                new BookmarkCopyImporter(dataSource, jdbcClient, jsonMapper, bookmarkCache,
+                        new BookmarkPartitionProperties(true, 3, Duration.ofHours(6)), ReadYourWrites.NONE),
+                new BookmarkWriteBehind(bookmarkRepository, new BookmarkWriteBehindProperties(false, 1, 1, Duration.ZERO)),
+                // Single-threaded benchmarks never wait for a permit, the bulkheads would only add their bookkeeping
+                new BookmarkBulkheads(new BookmarkBulkheadProperties(false, 1, 0, 1, 0, 1, 0, Duration.ZERO), meterRegistry), jsonMapper);
+    }
+
+    /// Opens another pool on the same database, with the given PgJDBC `prepareThreshold` (`0` never prepares server-side).
+    HikariDataSource newDataSource(int prepareThreshold) {
+        var config = new HikariConfig();
+        hikariConfig.copyStateTo(config);
+        config.setPoolName("bench-prepare-threshold-" + prepareThreshold);
+        config.addDataSourceProperty("prepareThreshold", prepareThreshold);
+        return new HikariDataSource(config);
+    }
+
+    /// A repository without cache and lookup batching, so every call runs its query.
+    BookmarkRepository uncachedRepository(DataSource dataSource) {
+        return new BookmarkRepository(JdbcClient.create(dataSource), new DataSourceTransactionManager(dataSource),
+                new BookmarkCache(new BookmarkCacheProperties(false, 0, Duration.ZERO, Duration.ZERO), meterRegistry),
+                new BookmarkLookupBatchProperties(false, Duration.ZERO, 1),
+                new BookmarkQueryObserver(ObservationRegistry.NOOP, meterRegistry), ReadYourWrites.NONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+        if (nonNull(postgreSQLContainer)) {
+            postgreSQLContainer.stop();
+        }
+    }
+
+    private void seed() {
+        final String TRUNCATE_BOOKMARKS_QUERY = """
+                TRUNCATE TABLE bookmarks RESTART IDENTITY
+                """;
+        // Distinct created_at values, so deep offsets walk idx_bookmarks_created_id like production data would
+        final String SEED_BOOKMARKS_QUERY = """
+                INSERT INTO bookmarks (title, url, created_at)
+                SELECT 'Bookmark ' || n, 'https://bench.example.com/seed/' || n, LOCALTIMESTAMP - n * INTERVAL '1 second'
+                FROM generate_series(1, :rows) AS n
+                """;
+
+        jdbcClient.sql(TRUNCATE_BOOKMARKS_QUERY).update();
+        jdbcClient.sql(SEED_BOOKMARKS_QUERY).param("rows", SEED_ROWS).update();
+        jdbcClient.sql("ANALYZE bookmarks").update();
+    }
+}
@@ -0,0 +1,74 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static io.akikr.demopostgredbapp.bookmark.BookmarkBenchmarkDatabase.SEED_ROWS;
+
+/// This class measures what server-side prepares save on the fixed [BookmarkRepository] statements: with
+/// `prepareThreshold=0` (as behind a transaction-pooling PgBouncer) every execution is parsed and planned again, with
+/// `1` a statement is prepared once per connection and only bound and executed afterwards, `5` is the PgJDBC default.
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookmarkPrepareBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @State(Scope.Benchmark)
+    public static class PreparedRepository {
+        @Param({"0", "1", "5"})
+        public int prepareThreshold;
+
+        private HikariDataSource dataSource;
+        BookmarkRepository bookmarkRepository;
+
+        @Setup(Level.Trial)
+        public void setUp(BookmarkBenchmarkDatabase database) {
+            dataSource = database.newDataSource(prepareThreshold);
+            bookmarkRepository = database.uncachedRepository(dataSource);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            dataSource.close();
+        }
+    }
+
+    @Benchmark
+    public Optional<Bookmark> findById(PreparedRepository repository) {
+        return repository.bookmarkRepository.findById(ThreadLocalRandom.current().nextLong(1, SEED_ROWS + 1));
+    }
+
+    @Benchmark
+    public List<Bookmark> findAllAfter(PreparedRepository repository) {
+        return repository.bookmarkRepository.findAllAfter(null, PAGE_SIZE);
+    }
+
+    // The most expensive statement to plan: a full-text and a trigram index, ORed
+    @Benchmark
+    public List<BookmarkRepository.SearchHit> search(PreparedRepository repository) {
+        return repository.bookmarkRepository.search("bookmark 42", null, PAGE_SIZE);
+    }
+}
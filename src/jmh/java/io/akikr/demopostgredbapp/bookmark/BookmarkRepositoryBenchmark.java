@@ -0,0 +1,69 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.akikr.demopostgredbapp.bookmark.BookmarkBenchmarkDatabase.SEED_ROWS;
+
+/// This class measures the [BookmarkRepository] hot paths against the database in [BookmarkBenchmarkDatabase].
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookmarkRepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private final AtomicLong saveSequence = new AtomicLong();
+
+    @State(Scope.Benchmark)
+    public static class Page {
+        // Shallow vs deep page: OFFSET cost grows with the number of rows skipped
+        @Param({"0", "2500"})
+        public int pageNumber;
+    }
+
+    @Benchmark
+    public Optional<Bookmark> findById(BookmarkBenchmarkDatabase database) {
+        return database.bookmarkRepository.findById(randomId());
+    }
+
+    @Benchmark
+    public Optional<Bookmark> findByIdCached(BookmarkBenchmarkDatabase database) {
+        return database.cachedBookmarkRepository.findById(randomId());
+    }
+
+    @Benchmark
+    public List<Bookmark> findAll(BookmarkBenchmarkDatabase database, Page page) {
+        return database.bookmarkRepository.findAll(page.pageNumber, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Long save(BookmarkBenchmarkDatabase database) {
+        // A fresh url per call keeps every insert clear of uq_bookmarks_url_hash
+        String url = "https://bench.example.com/save/" + System.nanoTime() + "-" + saveSequence.incrementAndGet();
+        return database.bookmarkRepository.save(new Bookmark(null, "Benchmark", url, LocalDateTime.now()));
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, SEED_ROWS + 1);
+    }
+}
@@ -0,0 +1,42 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static io.akikr.demopostgredbapp.bookmark.BookmarkBenchmarkDatabase.SEED_ROWS;
+
+/// This class measures the full [BookmarkServiceImpl] path, including validation, logging and the
+/// `ResponseEntity`/[BookmarkResponse] construction, on top of the same repository calls as [BookmarkRepositoryBenchmark].
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookmarkServiceBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Benchmark
+    public ResponseEntity<BookmarkResponse> getBookmarkById(BookmarkBenchmarkDatabase database) {
+        return database.bookmarkService.getBookmarkById(ThreadLocalRandom.current().nextLong(1, SEED_ROWS + 1), null);
+    }
+
+    @Benchmark
+    public ResponseEntity<BookmarkResponse> getAllBookmarks(BookmarkBenchmarkDatabase database,
+                                                               BookmarkRepositoryBenchmark.Page page) {
+        return database.bookmarkService.getAllBookmarks(page.pageNumber, PAGE_SIZE, null, null);
+    }
+}
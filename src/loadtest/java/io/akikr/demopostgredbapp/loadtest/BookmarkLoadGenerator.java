@@ -0,0 +1,317 @@
+package io.akikr.demopostgredbapp.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.convert.DurationStyle;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import static java.util.Objects.isNull;
+
+/// This class is an open-model HTTP load generator for the `/v1/bookmarks` API of an already running application.
+/// Requests are scheduled at a fixed (or Poisson) arrival rate independent of response times, one virtual thread per
+/// request, and latency is measured from the *intended* start time so a stalled server is not hidden by
+/// coordinated omission. Per-operation latencies are recorded in HdrHistograms and reported as p50/p99/p999.
+///
+/// Arguments are `key=value` pairs, see [Settings#from(String[])] for the keys and defaults.
+
+public final class BookmarkLoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final int LIST_PAGE_SIZE = 20;
+
+    enum Operation {GET, LIST, POST, PUT, DELETE}
+
+    record Seeded(long id, String url) {
+    }
+
+    /// @param baseUrl     application base url including its context path (`baseUrl`, default `http://localhost:8090/app/`)
+    /// @param rate        arrivals per second (`rate`, default `200`)
+    /// @param warmup      unrecorded warm-up period (`warmup`, default `10s`)
+    /// @param duration    recorded period (`duration`, default `60s`)
+    /// @param poisson     exponential inter-arrival times instead of a fixed interval (`arrival=poisson|constant`)
+    /// @param mix         operation weights (`mix`, default `get=60,list=15,post=10,put=10,delete=5`)
+    /// @param seedSize    bookmarks created up-front for GET/LIST/PUT (`seed`, default `1000`)
+    /// @param maxInFlight outstanding requests before arrivals are dropped (`maxInFlight`, default `10000`)
+    /// @param label       run name used for the result files (`label`, default `run`)
+    /// @param resultDir   result directory (`resultDir`, default `target/loadtest`)
+    record Settings(URI baseUrl, double rate, Duration warmup, Duration duration, boolean poisson,
+                    Map<Operation, Integer> mix, int seedSize, int maxInFlight, String label, Path resultDir) {
+
+        static Settings from(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (separator < 1) {
+                    throw new IllegalArgumentException("Expected key=value but got: " + arg);
+                }
+                values.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+            Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+            for (String weight : values.getOrDefault("mix", "get=60,list=15,post=10,put=10,delete=5").split(",")) {
+                String[] pair = weight.split("=");
+                mix.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+            }
+            return new Settings(
+                    baseUrlOf(values.getOrDefault("baseUrl", "http://localhost:8090/app/")),
+                    Double.parseDouble(values.getOrDefault("rate", "200")),
+                    DurationStyle.detectAndParse(values.getOrDefault("warmup", "10s")),
+                    DurationStyle.detectAndParse(values.getOrDefault("duration", "60s")),
+                    "poisson".equalsIgnoreCase(values.getOrDefault("arrival", "poisson")),
+                    mix,
+                    Integer.parseInt(values.getOrDefault("seed", "1000")),
+                    Integer.parseInt(values.getOrDefault("maxInFlight", "10000")),
+                    values.getOrDefault("label", "run"),
+                    Path.of(values.getOrDefault("resultDir", "target/loadtest")));
+        }
+
+        // The request paths are resolved relative to the base url, so it must end with '/' to keep its context path
+        private static URI baseUrlOf(String baseUrl) {
+            return URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        }
+    }
+
+    private final Settings settings;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final HttpClient httpClient;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Seeded> seeded = new ArrayList<>();
+    private final Queue<Long> created = new ConcurrentLinkedQueue<>();
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final LongAdder dropped = new LongAdder();
+    private final Operation[] weightedOperations;
+
+    BookmarkLoadGenerator(Settings settings) {
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+        this.weightedOperations = settings.mix().entrySet().stream()
+                .flatMap(entry -> Stream.generate(entry::getKey).limit(entry.getValue()))
+                .toArray(Operation[]::new);
+        if (weightedOperations.length == 0) {
+            throw new IllegalArgumentException("Operation mix must have at least one positive weight");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var generator = new BookmarkLoadGenerator(Settings.from(args));
+        generator.seed();
+        generator.run();
+        generator.report();
+    }
+
+    void seed() throws IOException, InterruptedException {
+        for (int offset = 0; offset < settings.seedSize(); offset += SEED_BATCH_SIZE) {
+            List<Map<String, String>> batch = new ArrayList<>();
+            for (int n = offset; n < Math.min(offset + SEED_BATCH_SIZE, settings.seedSize()); n++) {
+                batch.add(Map.of("title", "Load test " + n, "url", "https://loadtest.example.com/" + runId + "/seed/" + n));
+            }
+            HttpResponse<String> response = httpClient.send(request("v1/bookmarks/batch")
+                    .POST(HttpRequest.BodyPublishers.ofString(jsonMapper.writeValueAsString(batch)))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": " + response.body());
+            }
+            var data = jsonMapper.readTree(response.body()).path("data");
+            for (int i = 0; i < batch.size(); i++) {
+                seeded.add(new Seeded(data.get(i).path("id").asLong(), batch.get(i).get("url")));
+            }
+        }
+        System.out.printf("Seeded %d bookmarks for run %s%n", seeded.size(), runId);
+    }
+
+    void run() {
+        var inFlight = new Semaphore(settings.maxInFlight());
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+        long start = System.nanoTime();
+        long recordFrom = start + settings.warmup().toNanos();
+        long end = recordFrom + settings.duration().toNanos();
+        long next = start;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (next < end) {
+                long now;
+                while ((now = System.nanoTime()) < next) {
+                    LockSupport.parkNanos(next - now);
+                }
+                long intendedStart = next;
+                boolean recorded = intendedStart >= recordFrom;
+                next += settings.poisson()
+                        ? (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos)
+                        : (long) meanIntervalNanos;
+
+                // The schedule never waits for the server: arrivals beyond maxInFlight are counted, not queued
+                if (!inFlight.tryAcquire()) {
+                    if (recorded) {
+                        dropped.increment();
+                    }
+                    continue;
+                }
+                Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+                executor.execute(() -> {
+                    try {
+                        execute(operation, intendedStart, recorded);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private void execute(Operation operation, long intendedStart, boolean recorded) {
+        // Only bookmarks created by this run's POSTs are deleted, the seeded ones stay readable
+        Long deleteId = (operation == Operation.DELETE) ? created.poll() : null;
+        if (operation == Operation.DELETE && isNull(deleteId)) {
+            execute(Operation.GET, intendedStart, recorded);
+            return;
+        }
+        boolean failed;
+        try {
+            failed = switch (operation) {
+                case GET -> send(request("v1/bookmarks/" + randomSeeded().id()).GET()).statusCode() >= 400;
+                case LIST -> {
+                    int lastPage = Math.max(seeded.size() / LIST_PAGE_SIZE - 1, 0);
+                    int page = ThreadLocalRandom.current().nextInt(lastPage + 1);
+                    yield send(request("v1/bookmarks?page=" + page + "&size=" + LIST_PAGE_SIZE).GET()).statusCode() >= 400;
+                }
+                case POST -> {
+                    String url = "https://loadtest.example.com/" + runId + "/post/" + sequence.incrementAndGet();
+                    HttpResponse<String> response = send(request("v1/bookmarks")
+                            .POST(json(Map.of("title", "Load test post", "url", url))));
+                    if (response.statusCode() == 201) {
+                        created.add(jsonMapper.readTree(response.body()).path("id").asLong());
+                    }
+                    yield response.statusCode() >= 400;
+                }
+                case PUT -> {
+                    Seeded bookmark = randomSeeded();
+                    yield send(request("v1/bookmarks")
+                            .PUT(json(Map.of("id", bookmark.id(), "title", "Load test put " + sequence.incrementAndGet(),
+                                    "url", bookmark.url())))).statusCode() >= 400;
+                }
+                case DELETE -> send(request("v1/bookmarks/" + deleteId).DELETE()).statusCode() >= 400;
+            };
+        } catch (Exception e) {
+            failed = true;
+        }
+        if (!recorded) {
+            return;
+        }
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+        histograms.get(operation).recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+        if (failed) {
+            errors.get(operation).increment();
+        }
+    }
+
+    void report() throws IOException {
+        Files.createDirectories(settings.resultDir());
+        Map<String, Object> operations = new LinkedHashMap<>();
+        var total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+        System.out.printf("%n%-8s %10s %8s %10s %10s %10s %10s%n", "op", "count", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(histogram);
+            operations.put(operation.name(), summary(histogram, errors.get(operation).sum()));
+            printRow(operation.name(), histogram, errors.get(operation).sum());
+            try (var out = new PrintStream(settings.resultDir().resolve(settings.label() + "-" + operation.name().toLowerCase() + ".hgrm").toFile())) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        long totalErrors = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        printRow("ALL", total, totalErrors);
+
+        double achievedRate = total.getTotalCount() / (double) settings.duration().toSeconds();
+        System.out.printf("%nTarget rate %.0f/s, achieved %.1f/s, dropped %d%n", settings.rate(), achievedRate, dropped.sum());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("label", settings.label());
+        result.put("baseUrl", settings.baseUrl().toString());
+        result.put("targetRate", settings.rate());
+        result.put("achievedRate", achievedRate);
+        result.put("arrival", settings.poisson() ? "poisson" : "constant");
+        result.put("durationSeconds", settings.duration().toSeconds());
+        result.put("dropped", dropped.sum());
+        result.put("all", summary(total, totalErrors));
+        result.put("operations", operations);
+        Path resultFile = settings.resultDir().resolve(settings.label() + ".json");
+        jsonMapper.writerWithDefaultPrettyPrinter().writeValue(resultFile.toFile(), result);
+        System.out.printf("Results written to %s%n", resultFile.toAbsolutePath());
+    }
+
+    private Seeded randomSeeded() {
+        return seeded.get(ThreadLocalRandom.current().nextInt(seeded.size()));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(settings.baseUrl().resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) {
+        return HttpRequest.BodyPublishers.ofString(jsonMapper.writeValueAsString(body));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Map<String, Object> summary(Histogram histogram, long errors) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("p50Millis", histogram.getValueAtPercentile(50) / 1000.0);
+        summary.put("p99Millis", histogram.getValueAtPercentile(99) / 1000.0);
+        summary.put("p999Millis", histogram.getValueAtPercentile(99.9) / 1000.0);
+        summary.put("maxMillis", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+
+    private static void printRow(String name, Histogram histogram, long errors) {
+        System.out.printf("%-8s %10d %8d %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(), errors,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0);
+    }
+}
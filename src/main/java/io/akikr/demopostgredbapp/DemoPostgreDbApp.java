@@ -1,6 +1,14 @@
 package io.akikr.demopostgredbapp;
 
 import io.akikr.demopostgredbapp.config.AppLoggingProperties;
+import io.akikr.demopostgredbapp.config.BookmarkBulkheadProperties;
+import io.akikr.demopostgredbapp.config.BookmarkCacheProperties;
+import io.akikr.demopostgredbapp.config.BookmarkCountProperties;
+import io.akikr.demopostgredbapp.config.BookmarkLookupBatchProperties;
+import io.akikr.demopostgredbapp.config.BookmarkPartitionProperties;
+import io.akikr.demopostgredbapp.config.BookmarkWriteBehindProperties;
+import io.akikr.demopostgredbapp.config.ReplicaDataSourceProperties;
+import io.akikr.demopostgredbapp.config.SlowQueryProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
@@ -10,7 +18,16 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import java.util.Arrays;
 
 @SpringBootApplication
-@EnableConfigurationProperties(value = {AppLoggingProperties.class})
+@EnableConfigurationProperties(value = {
+        AppLoggingProperties.class,
+        BookmarkBulkheadProperties.class,
+        BookmarkCacheProperties.class,
+        BookmarkCountProperties.class,
+        BookmarkLookupBatchProperties.class,
+        BookmarkPartitionProperties.class,
+        BookmarkWriteBehindProperties.class,
+        ReplicaDataSourceProperties.class,
+        SlowQueryProperties.class})
 public class DemoPostgreDbApp {
 
     private static final Logger log = LoggerFactory.getLogger(DemoPostgreDbApp.class);
@@ -1,15 +1,21 @@
 package io.akikr.demopostgredbapp.bookmark;
 
-import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.time.LocalDateTime;
 
 /// This class represents a Bookmark entity with fields for id, title, url, and createdAt timestamp.
 /// The Bookmark class is a record, which is a special kind of class in Java that is used to model immutable data.
+/// Title and url are checked by [BookmarkValidator] before a bookmark is written.
+/// The `version` is bumped by every update of the row and backs the bookmark's ETag, it is not part of the JSON body.
 
 record Bookmark(Long id,
-                       @NotNull(message = "Title cannot be NULL") @NotBlank(message = "Title cannot be Blank") String title,
-                       @NotNull(message = "URL cannot be NULL") @NotBlank(message = "URL cannot be Blank") String url,
-                       LocalDateTime createdAt) {
+                       String title,
+                       String url,
+                       LocalDateTime createdAt,
+                       @JsonIgnore Long version) {
+
+    Bookmark(Long id, String title, String url, LocalDateTime createdAt) {
+        this(id, title, url, createdAt, null);
+    }
 }
@@ -0,0 +1,166 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.BookmarkBulkheadProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.isNull;
+
+/// This class admits the repository work of [BookmarkServiceImpl] through three semaphore bulkheads, one for reads, one
+/// for writes and one for exports, sized to the connection pool. A request that finds no free permit joins a bounded wait
+/// queue for at most `maxWait`, and is rejected with a [BulkheadFullException] when the queue is full or the wait runs
+/// out, instead of piling up virtual threads on the pool until its connection timeout. The streamed responses take their
+/// permit before their status is committed and release it once their body is written. An export holds its permit for
+/// the whole download, so exports have their own small bulkhead and cannot starve the reads.
+/// The write-behind writer is not admitted, it holds a single connection.
+/// It publishes:
+/// - a `bookmark.bulkhead.wait` timer tagged by `bulkhead` and `outcome` (`admitted`, `queue_full` or `timeout`)
+/// - `bookmark.bulkhead.queue.depth` and `bookmark.bulkhead.active` gauges tagged by `bulkhead`
+
+@Component
+class BookmarkBulkheads {
+
+    static final String WAIT_TIMER_NAME = "bookmark.bulkhead.wait";
+    static final String QUEUE_DEPTH_GAUGE_NAME = "bookmark.bulkhead.queue.depth";
+    static final String ACTIVE_GAUGE_NAME = "bookmark.bulkhead.active";
+
+    private final Bulkhead read;
+    private final Bulkhead write;
+    private final Bulkhead export;
+
+    public BookmarkBulkheads(BookmarkBulkheadProperties bookmarkBulkheadProperties, MeterRegistry meterRegistry) {
+        if (!bookmarkBulkheadProperties.enabled()) {
+            this.read = null;
+            this.write = null;
+            this.export = null;
+            return;
+        }
+        long maxWaitNanos = bookmarkBulkheadProperties.maxWait().toNanos();
+        this.read = new Bulkhead("read", bookmarkBulkheadProperties.readConcurrency(),
+                bookmarkBulkheadProperties.readQueueCapacity(), maxWaitNanos, meterRegistry);
+        this.write = new Bulkhead("write", bookmarkBulkheadProperties.writeConcurrency(),
+                bookmarkBulkheadProperties.writeQueueCapacity(), maxWaitNanos, meterRegistry);
+        this.export = new Bulkhead("export", bookmarkBulkheadProperties.exportConcurrency(),
+                bookmarkBulkheadProperties.exportQueueCapacity(), maxWaitNanos, meterRegistry);
+    }
+
+    /// Waits for a read permit, held until the returned admission is closed.
+    /// Throws [BulkheadFullException] when none frees up in time.
+    Admission read() {
+        return admit(read);
+    }
+
+    /// Waits for a write permit, held until the returned admission is closed.
+    /// Throws [BulkheadFullException] when none frees up in time.
+    Admission write() {
+        return admit(write);
+    }
+
+    /// Waits for an export permit, held until the returned admission is closed.
+    /// Throws [BulkheadFullException] when none frees up in time.
+    Admission export() {
+        return admit(export);
+    }
+
+    private static Admission admit(Bulkhead bulkhead) {
+        if (isNull(bulkhead)) {
+            return Admission.NONE;
+        }
+        bulkhead.acquire();
+        return bulkhead::release;
+    }
+
+    /// A held permit, meant for try-with-resources around the repository calls of one request.
+    @FunctionalInterface
+    interface Admission extends AutoCloseable {
+
+        Admission NONE = () -> {
+        };
+
+        @Override
+        void close();
+    }
+
+    /// Thrown when a bulkhead has no permit for the request, the service answers it with a 503 and `Retry-After`.
+    static final class BulkheadFullException extends RuntimeException {
+        BulkheadFullException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Bulkhead {
+
+        private final String name;
+        private final Semaphore permits;
+        private final int concurrency;
+        private final int queueCapacity;
+        private final long maxWaitNanos;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Timer admittedTimer;
+        private final Timer queueFullTimer;
+        private final Timer timeoutTimer;
+
+        Bulkhead(String name, int concurrency, int queueCapacity, long maxWaitNanos, MeterRegistry meterRegistry) {
+            this.name = name;
+            // Fair, so the queue is served in arrival order and an early waiter is not starved into its timeout
+            this.permits = new Semaphore(concurrency, true);
+            this.concurrency = concurrency;
+            this.queueCapacity = queueCapacity;
+            this.maxWaitNanos = maxWaitNanos;
+            this.admittedTimer = waitTimer("admitted", meterRegistry);
+            this.queueFullTimer = waitTimer("queue_full", meterRegistry);
+            this.timeoutTimer = waitTimer("timeout", meterRegistry);
+            Gauge.builder(QUEUE_DEPTH_GAUGE_NAME, waiting, AtomicInteger::get)
+                    .tag("bulkhead", name)
+                    .register(meterRegistry);
+            Gauge.builder(ACTIVE_GAUGE_NAME, this, bulkhead -> bulkhead.concurrency - bulkhead.permits.availablePermits())
+                    .tag("bulkhead", name)
+                    .register(meterRegistry);
+        }
+
+        void acquire() {
+            long startNanos = System.nanoTime();
+            try {
+                // The timed form honours fairness: a free permit is only taken right away when nobody waits for one
+                if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                    admittedTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                if (waiting.incrementAndGet() > queueCapacity) {
+                    waiting.decrementAndGet();
+                    queueFullTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    throw new BulkheadFullException("Too many waiting bookmark " + name + "s");
+                }
+                try {
+                    if (permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                        admittedTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            timeoutTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            throw new BulkheadFullException("No bookmark " + name + " capacity within " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "ms");
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        private Timer waitTimer(String outcome, MeterRegistry meterRegistry) {
+            return Timer.builder(WAIT_TIMER_NAME)
+                    .tag("bulkhead", name)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
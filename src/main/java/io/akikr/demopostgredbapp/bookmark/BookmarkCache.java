@@ -0,0 +1,94 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.akikr.demopostgredbapp.config.BookmarkCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.util.Objects.isNull;
+
+/// This class is an in-process read-through cache in front of [BookmarkRepository#findById(Long)].
+/// Entries are bounded by size and TTL, and lookups of missing IDs are cached as empty for a shorter TTL.
+/// Hit/miss/eviction statistics are published to Micrometer under the `cache.*` meters with `cache=bookmarks`.
+
+@Component
+class BookmarkCache {
+
+    static final String CACHE_NAME = "bookmarks";
+
+    private final Cache<Long, Optional<Bookmark>> cache;
+
+    public BookmarkCache(BookmarkCacheProperties bookmarkCacheProperties, MeterRegistry meterRegistry) {
+        if (!bookmarkCacheProperties.enabled()) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(bookmarkCacheProperties.maximumSize())
+                .expireAfter(Expiry.writing((Long id, Optional<Bookmark> bookmark) -> bookmark.isPresent()
+                        ? bookmarkCacheProperties.ttl()
+                        : bookmarkCacheProperties.negativeTtl()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Optional<Bookmark> get(Long id, Function<Long, Optional<Bookmark>> loader) {
+        if (isNull(cache)) {
+            return loader.apply(id);
+        }
+        return cache.get(id, loader);
+    }
+
+    /// Returns the cached entry, or loads one without caching it, for a read whose answer may be stale.
+    public Optional<Bookmark> getWithoutCaching(Long id, Function<Long, Optional<Bookmark>> loader) {
+        Optional<Bookmark> cached = isNull(cache) ? null : cache.getIfPresent(id);
+        return isNull(cached) ? loader.apply(id) : cached;
+    }
+
+    public void put(Long id, Optional<Bookmark> bookmark) {
+        if (isNull(cache)) {
+            return;
+        }
+        cache.put(id, bookmark);
+    }
+
+    public void evict(Long id) {
+        if (isNull(cache)) {
+            return;
+        }
+        cache.invalidate(id);
+        // Evict again once the writing transaction completes, so a read racing the commit cannot keep the old row
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        if (isNull(cache)) {
+            return;
+        }
+        cache.invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll();
+                }
+            });
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.akikr.demopostgredbapp.bookmark;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -9,11 +10,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Map;
+import java.io.InputStream;
+import java.util.List;
+
+import static java.util.Objects.nonNull;
 
 @Controller
 @ResponseBody
@@ -27,29 +33,83 @@ class BookmarkController {
     }
 
     @GetMapping(path = "/bookmarks")
-    public ResponseEntity<Map<String, Object>> getAllBookmarks(
+    public ResponseEntity<BookmarkResponse> getAllBookmarks(
+            @RequestParam(value = "page", required = false, defaultValue = "0") Integer pageNumber,
+            @RequestParam(value = "size", required = false, defaultValue = "10") Integer pageSize,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "total", required = false) String total,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Presence of 'cursor' (empty for the first page) switches to keyset pagination
+        if (nonNull(cursor)) {
+            return bookmarkService.getBookmarksByCursor(cursor, pageSize, ifNoneMatch);
+        }
+        return bookmarkService.getAllBookmarks(pageNumber, pageSize, total, ifNoneMatch);
+    }
+
+    @GetMapping(path = "/bookmarks", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllBookmarks(
             @RequestParam(value = "page", required = false, defaultValue = "0") Integer pageNumber,
-            @RequestParam(value = "size", required = false, defaultValue = "10") Integer pageSize) {
-        return bookmarkService.getAllBookmarks(pageNumber, pageSize);
+            @RequestParam(value = "size", required = false, defaultValue = "10") Integer pageSize,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return bookmarkService.streamAllBookmarks(pageNumber, pageSize, ifNoneMatch);
+    }
+
+    @GetMapping(path = "/bookmarks", params = "url")
+    public ResponseEntity<BookmarkResponse> getBookmarkByUrl(
+            @RequestParam(value = "url") String url,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return bookmarkService.getBookmarkByUrl(url, ifNoneMatch);
+    }
+
+    @GetMapping(path = "/bookmarks/search")
+    public ResponseEntity<BookmarkResponse> searchBookmarks(
+            @RequestParam(value = "q") String q,
+            @RequestParam(value = "size", required = false, defaultValue = "10") Integer pageSize,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return bookmarkService.searchBookmarks(q, cursor, pageSize);
+    }
+
+    @GetMapping(path = "/bookmarks/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBookmarks() {
+        return bookmarkService.exportBookmarks();
     }
 
     @GetMapping(path = "/bookmarks/{id}")
-    public ResponseEntity<Map<String, Object>> getBookmarkById(@PathVariable(name = "id") Long id) {
-        return bookmarkService.getBookmarkById(id);
+    public ResponseEntity<BookmarkResponse> getBookmarkById(@PathVariable(name = "id") Long id,
+                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return bookmarkService.getBookmarkById(id, ifNoneMatch);
     }
 
     @PostMapping(path = "/bookmarks")
-    public ResponseEntity<Map<String, Object>> createBookmark(@RequestBody Bookmark bookmark) {
+    public ResponseEntity<BookmarkResponse> createBookmark(@RequestBody Bookmark bookmark) {
         return bookmarkService.createBookmark(bookmark);
     }
 
+    @PostMapping(path = "/bookmarks/batch")
+    public ResponseEntity<BookmarkResponse> createBookmarks(@RequestBody List<Bookmark> bookmarks) {
+        return bookmarkService.createBookmarks(bookmarks);
+    }
+
+    @PostMapping(path = "/bookmarks/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BookmarkResponse> importBookmarks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestParam(value = "onConflict", required = false, defaultValue = "skip") String onConflict,
+            InputStream body) {
+        return bookmarkService.importBookmarks(body, contentType, onConflict);
+    }
+
     @PutMapping(path = "/bookmarks")
-    public ResponseEntity<Map<String, Object>> updateBookmark(@RequestBody Bookmark bookmark) {
+    public ResponseEntity<BookmarkResponse> updateBookmark(@RequestBody Bookmark bookmark) {
         return bookmarkService.updateBookmark(bookmark);
     }
 
+    @PutMapping(path = "/bookmarks/by-url")
+    public ResponseEntity<BookmarkResponse> upsertBookmarkByUrl(@RequestBody Bookmark bookmark) {
+        return bookmarkService.upsertBookmarkByUrl(bookmark);
+    }
+
     @DeleteMapping(path = "/bookmarks/{id}")
-    public ResponseEntity<Map<String, Object>> deleteBookmarkById(@PathVariable(name = "id") Long id) {
+    public ResponseEntity<BookmarkResponse> deleteBookmarkById(@PathVariable(name = "id") Long id) {
         return bookmarkService.deleteBookmarkById(id);
     }
 }
@@ -0,0 +1,207 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.BookmarkPartitionProperties;
+import io.akikr.demopostgredbapp.config.ReadYourWrites;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/// This class bulk-loads bookmarks with PostgreSQL `COPY ... FROM STDIN` through PgJDBC's [CopyManager].
+/// The upload is streamed into a transaction-scoped staging table, then merged into `bookmarks` with a single
+/// statement that claims the url hashes in `bookmark_urls` with `ON CONFLICT (url_hash)`, so duplicates are resolved in
+/// the database. A line that breaks a rule of [BookmarkValidator] is dropped and counted as rejected. A line dated more than `app.bookmark.partitions.months-ahead` months from now fails the whole import,
+/// so an upload cannot create partitions far into the future.
+
+@Repository
+class BookmarkCopyImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(BookmarkCopyImporter.class);
+    private static final int COPY_CHUNK_SIZE = 64 * 1024;
+
+    enum Format {CSV, NDJSON}
+
+    enum OnConflict {SKIP, UPDATE}
+
+    record ImportResult(long rowsRead, long rowsWritten, long rowsRejected, long elapsedMillis, long rowsPerSecond) {
+    }
+
+    private final DataSource dataSource;
+    private final JdbcClient jdbcClient;
+    private final ObjectReader bookmarkReader;
+    private final BookmarkCache bookmarkCache;
+    private final int monthsAhead;
+    private final ReadYourWrites readYourWrites;
+
+    public BookmarkCopyImporter(DataSource dataSource, JdbcClient jdbcClient, JsonMapper jsonMapper, BookmarkCache bookmarkCache,
+                                BookmarkPartitionProperties bookmarkPartitionProperties, ReadYourWrites readYourWrites) {
+        this.dataSource = dataSource;
+        this.jdbcClient = jdbcClient;
+        this.bookmarkReader = jsonMapper.readerFor(Bookmark.class);
+        this.bookmarkCache = bookmarkCache;
+        this.monthsAhead = bookmarkPartitionProperties.monthsAhead();
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    public ImportResult importBookmarks(InputStream input, Format format, OnConflict onConflict) throws SQLException, IOException {
+        final String CREATE_STAGING_TABLE_QUERY = """
+                CREATE TEMP TABLE bookmarks_staging
+                (
+                    line       bigserial,
+                    title      varchar,
+                    url        varchar,
+                    created_at timestamp
+                ) ON COMMIT DROP
+                """;
+        final String COPY_CSV_WITH_HEADER_QUERY = """
+                COPY bookmarks_staging (title, url, created_at) FROM STDIN WITH (FORMAT csv, HEADER true)
+                """;
+        final String COPY_CSV_QUERY = """
+                COPY bookmarks_staging (title, url, created_at) FROM STDIN WITH (FORMAT csv)
+                """;
+        // The rules of BookmarkValidator in SQL: a non-blank title, an http(s) url with a host, both within their lengths.
+        // The url pattern is a close approximation of java.net.URI, which parses the url of a single write.
+        final String DELETE_INVALID_LINES_QUERY = """
+                DELETE FROM bookmarks_staging
+                WHERE (title ~ '[^[:space:]]'
+                    AND char_length(title) <= :maxTitleLength
+                    AND char_length(url) <= :maxUrlLength
+                    AND url !~ '[[:space:]<>"{}|^`]'
+                    AND url ~* '^https?://([^/?#@]*@)?([a-z0-9]([a-z0-9-]*[a-z0-9])?([.][a-z0-9]([a-z0-9-]*[a-z0-9])?)*[.]?|[[][0-9a-f:.]+[]])(:[0-9]*)?([/?#]|$)'
+                    ) IS NOT TRUE
+                """;
+        final String SELECT_FIRST_LINE_PAST_HORIZON_QUERY = """
+                SELECT min(line) FROM bookmarks_staging WHERE created_at > LOCALTIMESTAMP + make_interval(months => :monthsAhead)
+                """;
+        // A line dated past the newest partition gets its month's partition, the lock on 'bookmarks' is then held until
+        // the import commits. Older lines always have one, in bookmarks_history or a monthly partition. The bound is
+        // the one of BookmarkPartitionMaintenance, the lines past it are rejected above.
+        final String ENSURE_PARTITIONS_QUERY = """
+                SELECT ensure_bookmarks_partitions(LEAST(max(COALESCE(created_at, LOCALTIMESTAMP)),
+                                                         LOCALTIMESTAMP + make_interval(months => :monthsAhead)))
+                FROM bookmarks_staging
+                """;
+        // DISTINCT ON keeps the last line per url hash, so a url repeated in the upload (or a near-duplicate) is written once.
+        // The hashes are claimed in bookmark_urls first, the claimed ones are inserted and, with UPDATE, the others updated.
+        final String MERGE_STAGING_QUERY = """
+                WITH input AS (SELECT DISTINCT ON (bookmark_url_hash(url)) bookmark_url_hash(url) AS url_hash,
+                                      title, url, COALESCE(created_at, LOCALTIMESTAMP) AS created_at
+                               FROM bookmarks_staging
+                               ORDER BY bookmark_url_hash(url), line DESC),
+                     claimed AS (INSERT INTO bookmark_urls (url_hash, id)
+                                 SELECT url_hash, nextval('bookmarks_id_seq') FROM input
+                                 %s
+                                 RETURNING url_hash, id, (xmax = 0) AS created),
+                     inserted AS (INSERT INTO bookmarks (id, title, url, created_at)
+                                  SELECT c.id, i.title, i.url, i.created_at
+                                  FROM input i JOIN claimed c ON c.url_hash = i.url_hash
+                                  WHERE c.created
+                                  RETURNING 1),
+                     updated AS (UPDATE bookmarks b
+                                 SET title = i.title, version = b.version + 1
+                                 FROM input i JOIN claimed c ON c.url_hash = i.url_hash
+                                 WHERE b.id = c.id AND NOT c.created
+                                 RETURNING 1)
+                SELECT (SELECT count(*) FROM inserted) + (SELECT count(*) FROM updated)
+                """;
+        final String ON_CONFLICT_SKIP = "ON CONFLICT (url_hash) DO NOTHING";
+        final String ON_CONFLICT_UPDATE = "ON CONFLICT (url_hash) DO UPDATE SET id = bookmark_urls.id";
+
+        long startNanos = System.nanoTime();
+        jdbcClient.sql(CREATE_STAGING_TABLE_QUERY).update();
+
+        // The staging table and the COPY must share the transaction-bound connection
+        CopyManager copyManager = DataSourceUtils.getConnection(dataSource).unwrap(PGConnection.class).getCopyAPI();
+        long rowsRead = switch (format) {
+            case CSV -> copyManager.copyIn(COPY_CSV_WITH_HEADER_QUERY, input, COPY_CHUNK_SIZE);
+            case NDJSON -> copyNdjson(copyManager.copyIn(COPY_CSV_QUERY), input);
+        };
+
+        long rowsRejected = jdbcClient.sql(DELETE_INVALID_LINES_QUERY)
+                .param("maxTitleLength", BookmarkValidator.MAX_TITLE_LENGTH)
+                .param("maxUrlLength", BookmarkValidator.MAX_URL_LENGTH)
+                .update();
+        Long lineTooFarAhead = jdbcClient.sql(SELECT_FIRST_LINE_PAST_HORIZON_QUERY)
+                .param("monthsAhead", monthsAhead)
+                .query(Long.class)
+                .single();
+        if (nonNull(lineTooFarAhead)) {
+            // Rolls back the staged upload with the transaction
+            throw new IllegalArgumentException("Bookmark " + lineTooFarAhead + " of the import is dated more than "
+                    + monthsAhead + " months ahead");
+        }
+        jdbcClient.sql(ENSURE_PARTITIONS_QUERY)
+                .param("monthsAhead", monthsAhead)
+                .query(Integer.class)
+                .single();
+        long rowsWritten = jdbcClient.sql(MERGE_STAGING_QUERY.formatted(onConflict == OnConflict.UPDATE ? ON_CONFLICT_UPDATE : ON_CONFLICT_SKIP))
+                .query(Long.class)
+                .single();
+        // Imported rows may replace cached entries, including cached negative lookups
+        bookmarkCache.evictAll();
+        readYourWrites.recordWriteOfAll();
+
+        long elapsedNanos = Math.max(System.nanoTime() - startNanos, 1);
+        var importResult = new ImportResult(rowsRead, rowsWritten, rowsRejected, elapsedNanos / 1_000_000, rowsRead * 1_000_000_000 / elapsedNanos);
+        log.info("Imported bookmarks: {}", importResult);
+        return importResult;
+    }
+
+    /// Re-encodes each NDJSON line as a CSV row and streams it to COPY in fixed-size chunks.
+    private long copyNdjson(CopyIn copyIn, InputStream input) throws SQLException {
+        var chunk = new ByteArrayOutputStream(COPY_CHUNK_SIZE + 1024);
+        try (MappingIterator<Bookmark> bookmarks = bookmarkReader.readValues(input)) {
+            while (bookmarks.hasNextValue()) {
+                writeCsvRow(chunk, bookmarks.nextValue());
+                if (chunk.size() >= COPY_CHUNK_SIZE) {
+                    copyIn.writeToCopy(chunk.toByteArray(), 0, chunk.size());
+                    chunk.reset();
+                }
+            }
+            if (chunk.size() > 0) {
+                copyIn.writeToCopy(chunk.toByteArray(), 0, chunk.size());
+            }
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void writeCsvRow(ByteArrayOutputStream chunk, Bookmark bookmark) {
+        writeCsvField(chunk, bookmark.title());
+        chunk.write(',');
+        writeCsvField(chunk, bookmark.url());
+        chunk.write(',');
+        writeCsvField(chunk, isNull(bookmark.createdAt()) ? null : bookmark.createdAt().toString());
+        chunk.write('\n');
+    }
+
+    private static void writeCsvField(ByteArrayOutputStream chunk, String value) {
+        // An unquoted empty field is read as NULL by COPY csv
+        if (isNull(value)) {
+            return;
+        }
+        chunk.writeBytes(('"' + value.replace("\"", "\"\"") + '"').getBytes(StandardCharsets.UTF_8));
+    }
+}
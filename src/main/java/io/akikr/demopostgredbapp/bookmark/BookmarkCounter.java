@@ -0,0 +1,47 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.akikr.demopostgredbapp.config.BookmarkCountProperties;
+import org.springframework.stereotype.Component;
+
+/// This class provides the optional `total` of the paged listings without running a `COUNT(*)` per request.
+/// `ESTIMATE` reads the planner's row estimate, a catalog lookup on both Postgres and YugabyteDB, and falls back to the
+/// cached exact count while the table has never been analyzed. `EXACT` counts at most once per refresh interval: the
+/// cached value is served in between and reloaded in the background once it is due.
+
+@Component
+class BookmarkCounter {
+
+    private static final String TOTAL_KEY = "total";
+
+    private final BookmarkRepository bookmarkRepository;
+    private final BookmarkCountProperties.Mode defaultMode;
+    private final LoadingCache<String, Long> exactCount;
+
+    public BookmarkCounter(BookmarkRepository bookmarkRepository, BookmarkCountProperties bookmarkCountProperties) {
+        this.bookmarkRepository = bookmarkRepository;
+        this.defaultMode = bookmarkCountProperties.mode();
+        this.exactCount = Caffeine.newBuilder()
+                .refreshAfterWrite(bookmarkCountProperties.refreshInterval())
+                // After a long idle period the stale value is dropped instead of being served once more
+                .expireAfterWrite(bookmarkCountProperties.refreshInterval().multipliedBy(2))
+                .build(key -> bookmarkRepository.count());
+    }
+
+    BookmarkCountProperties.Mode defaultMode() {
+        return defaultMode;
+    }
+
+    /// Returns the total for the given mode, `null` for [BookmarkCountProperties.Mode#NONE].
+    Long total(BookmarkCountProperties.Mode mode) {
+        return switch (mode) {
+            case NONE -> null;
+            case ESTIMATE -> {
+                long estimate = bookmarkRepository.estimateCount();
+                yield estimate >= 0 ? estimate : exactCount.get(TOTAL_KEY);
+            }
+            case EXACT -> exactCount.get(TOTAL_KEY);
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import static java.util.Objects.isNull;
+
+/// This record represents a keyset (seek) pagination cursor, holding the sort key `(created_at, id)` of the last
+/// bookmark on a page. It is exchanged with clients as an opaque URL-safe Base64 token.
+
+record BookmarkCursor(LocalDateTime createdAt, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    static BookmarkCursor of(Bookmark bookmark) {
+        return new BookmarkCursor(bookmark.createdAt(), bookmark.id());
+    }
+
+    String encode() {
+        var raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static BookmarkCursor decode(String token) throws IllegalArgumentException {
+        if (isNull(token) || token.isBlank()) {
+            throw new IllegalArgumentException("cursor must not be blank");
+        }
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var separatorIndex = raw.lastIndexOf(SEPARATOR);
+            return new BookmarkCursor(
+                    LocalDateTime.parse(raw.substring(0, separatorIndex)),
+                    Long.parseLong(raw.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import static java.util.Objects.isNull;
+
+/// This class derives the strong ETags of the bookmark reads and evaluates `If-None-Match` against them.
+/// A single bookmark is tagged with its row `version`, a list page with the table-level change counter,
+/// so both can be compared before any row is serialized.
+
+final class BookmarkETags {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private BookmarkETags() {
+    }
+
+    static String of(Bookmark bookmark) {
+        return "\"" + bookmark.id() + "-" + bookmark.version() + "\"";
+    }
+
+    static String ofChangeCount(long changeCount) {
+        return "\"c" + changeCount + "\"";
+    }
+
+    /// `If-None-Match` uses the weak comparison (RFC 9110, section 13.1.2), so a `W/` prefix sent by the client still matches.
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (isNull(ifNoneMatch) || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.strip();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith(WEAK_PREFIX)) {
+                candidate = candidate.substring(WEAK_PREFIX.length());
+            }
+            if (candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,113 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/// This class coalesces concurrent point lookups into one bulk query, DataLoader style.
+/// The first lookup opens a batch and starts a virtual thread that waits up to `maxWait` (or until `maxBatchSize` ids
+/// have joined), then loads the whole batch with a single query and completes every caller's future.
+/// Concurrent lookups of the same id share one in-flight future, so an id is never queried twice at the same time.
+
+final class BookmarkLookupBatcher {
+
+    private final Function<List<Long>, List<Bookmark>> bulkLoader;
+    private final long maxWaitNanos;
+    private final int maxBatchSize;
+    private final Map<Long, CompletableFuture<Optional<Bookmark>>> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private Batch openBatch;
+
+    BookmarkLookupBatcher(Function<List<Long>, List<Bookmark>> bulkLoader, Duration maxWait, int maxBatchSize) {
+        this.bulkLoader = bulkLoader;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    Optional<Bookmark> load(Long id) {
+        try {
+            return loadAsync(id).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    CompletableFuture<Optional<Bookmark>> loadAsync(Long id) {
+        Batch dispatch = null;
+        CompletableFuture<Optional<Bookmark>> lookup;
+        lock.lock();
+        try {
+            lookup = inFlight.get(id);
+            if (nonNull(lookup)) {
+                return lookup;
+            }
+            lookup = new CompletableFuture<>();
+            inFlight.put(id, lookup);
+            if (isNull(openBatch)) {
+                openBatch = new Batch();
+                dispatch = openBatch;
+            }
+            openBatch.ids.add(id);
+            if (openBatch.ids.size() >= maxBatchSize) {
+                openBatch.full.countDown();
+                openBatch = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (nonNull(dispatch)) {
+            Batch batch = dispatch;
+            Thread.ofVirtual().name("bookmark-lookup-batch").start(() -> dispatch(batch));
+        }
+        return lookup;
+    }
+
+    private void dispatch(Batch batch) {
+        try {
+            batch.full.await(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Long> ids;
+        lock.lock();
+        try {
+            if (openBatch == batch) {
+                openBatch = null;
+            }
+            // No id can join once the batch is closed
+            ids = List.copyOf(batch.ids);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            Map<Long, Bookmark> found = bulkLoader.apply(ids).stream()
+                    .collect(Collectors.toMap(Bookmark::id, Function.identity()));
+            ids.forEach(id -> inFlight.remove(id).complete(Optional.ofNullable(found.get(id))));
+        } catch (Throwable e) {
+            // Every waiting caller must be released, whatever the failure
+            ids.forEach(id -> inFlight.remove(id).completeExceptionally(e));
+        }
+    }
+
+    private static final class Batch {
+        private final List<Long> ids = new ArrayList<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+    }
+}
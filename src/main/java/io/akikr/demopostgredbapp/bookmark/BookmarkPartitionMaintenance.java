@@ -0,0 +1,71 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.BookmarkPartitionProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.nonNull;
+
+/// This class keeps the monthly partitions of `bookmarks` ahead of the clock: right at startup and then every
+/// `checkInterval`, the partitions up to `monthsAhead` months from now are created, so a new row never waits for one.
+/// A failed check (e.g. the partition creation timed out waiting for its lock) is only logged, the next one retries.
+
+@Component
+class BookmarkPartitionMaintenance implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(BookmarkPartitionMaintenance.class);
+
+    private final BookmarkRepository bookmarkRepository;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final long checkIntervalMillis;
+    private volatile ScheduledExecutorService scheduler;
+
+    public BookmarkPartitionMaintenance(BookmarkRepository bookmarkRepository, BookmarkPartitionProperties bookmarkPartitionProperties) {
+        this.bookmarkRepository = bookmarkRepository;
+        this.enabled = bookmarkPartitionProperties.enabled();
+        this.monthsAhead = bookmarkPartitionProperties.monthsAhead();
+        this.checkIntervalMillis = bookmarkPartitionProperties.checkInterval().toMillis();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || isRunning()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("bookmark-partitions").factory());
+        scheduler.scheduleWithFixedDelay(this::ensurePartitions, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (!isRunning()) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return nonNull(scheduler);
+    }
+
+    void ensurePartitions() {
+        try {
+            int created = bookmarkRepository.ensurePartitions(monthsAhead);
+            if (created > 0) {
+                log.info("Created {} bookmark partitions, up to {} months ahead", created, monthsAhead);
+            }
+        } catch (Exception e) {
+            // A thrown exception would cancel the schedule
+            log.warn("Bookmark partition check failed, retrying in {}ms, due to: {}", checkIntervalMillis, e.getMessage());
+        }
+    }
+}
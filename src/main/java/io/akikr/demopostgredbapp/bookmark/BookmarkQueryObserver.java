@@ -0,0 +1,107 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.CapturedStatement;
+import io.akikr.demopostgredbapp.config.ConnectionAcquireTracker;
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import static java.util.Objects.nonNull;
+
+/// This class wraps each [BookmarkRepository] operation in a Micrometer [Observation]. It produces:
+/// - a `bookmark.repository` timer tagged by `operation` and `outcome`
+/// - a span named after the operation, carrying the SQL name and the row count
+/// - a `bookmark.repository.connection.wait` timer with the time the operation waited for its pooled connection
+///
+/// Percentiles and histograms of both timers are set up by `management.metrics.distribution.*` in the properties.
+
+@Component
+class BookmarkQueryObserver {
+
+    static final String OBSERVATION_NAME = "bookmark.repository";
+    static final String CONNECTION_WAIT_TIMER_NAME = "bookmark.repository.connection.wait";
+
+    static final String OPERATION = "operation";
+    static final String QUERY_NAME = "db.query.name";
+    static final String ROW_COUNT = "db.response.returned_rows";
+    private static final String OUTCOME = "outcome";
+
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    public BookmarkQueryObserver(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    <T> T observe(String operation, String queryName, Supplier<T> query, ToIntFunction<T> rowCount) {
+        return observe(operation, queryName, KeyValues.empty(), query, rowCount);
+    }
+
+    /// Runs the query inside an observation, `tags` are added to both the timer and the span.
+    <T> T observe(String operation, String queryName, KeyValues tags, Supplier<T> query, ToIntFunction<T> rowCount) {
+        var observation = Observation.createNotStarted(OBSERVATION_NAME, observationRegistry)
+                .contextualName("bookmarks " + operation)
+                .lowCardinalityKeyValue(OPERATION, operation)
+                .lowCardinalityKeyValues(tags)
+                .highCardinalityKeyValue(QUERY_NAME, queryName)
+                .start();
+        try (var scope = observation.openScope()) {
+            T result = query.get();
+            observation.lowCardinalityKeyValue(OUTCOME, "success")
+                    .highCardinalityKeyValue(ROW_COUNT, String.valueOf(rowCount.applyAsInt(result)));
+            return result;
+        } catch (RuntimeException e) {
+            observation.lowCardinalityKeyValue(OUTCOME, "error")
+                    .error(e);
+            throw e;
+        } finally {
+            observation.stop();
+            recordConnectionWait(operation);
+        }
+    }
+
+    /// Attaches the statement to the running observation, for the [PreparedQuery] statements that `JdbcClient` binds
+    /// by index and so never pass through the capturing `NamedParameterJdbcTemplate`.
+    void capture(CapturedStatement statement) {
+        Observation observation = observationRegistry.getCurrentObservation();
+        if (nonNull(observation)) {
+            observation.getContext().put(CapturedStatement.class, statement);
+        }
+    }
+
+    // Taken after the operation: a @Transactional method has its connection before the body, a plain one only inside
+    private void recordConnectionWait(String operation) {
+        long acquireNanos = ConnectionAcquireTracker.takeLastAcquireNanos();
+        if (acquireNanos < 0) {
+            return;
+        }
+        Timer.builder(CONNECTION_WAIT_TIMER_NAME)
+                .tag(OPERATION, operation)
+                .register(meterRegistry)
+                .record(acquireNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /// Buckets a page number into a tag with a handful of values, deep OFFSET pages are the slow ones.
+    static KeyValue pageDepth(int pageNumber) {
+        String bucket;
+        if (pageNumber == 0) {
+            bucket = "0";
+        } else if (pageNumber < 10) {
+            bucket = "1-9";
+        } else if (pageNumber < 100) {
+            bucket = "10-99";
+        } else {
+            bucket = "100+";
+        }
+        return KeyValue.of("page.depth", bucket);
+    }
+}
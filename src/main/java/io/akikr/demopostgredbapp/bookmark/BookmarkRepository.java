@@ -1,82 +1,507 @@
 package io.akikr.demopostgredbapp.bookmark;
 
+import io.akikr.demopostgredbapp.config.BookmarkLookupBatchProperties;
+import io.akikr.demopostgredbapp.config.CapturedStatement;
+import io.akikr.demopostgredbapp.config.ReadYourWrites;
+import io.micrometer.common.KeyValues;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 @Repository
 class BookmarkRepository {
 
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+    private static final Pattern NON_WORD_CHARACTERS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // The fixed statements are parsed once here, each call only binds its values by index
+    private static final PreparedQuery SELECT_BOOKMARKS_QUERY = PreparedQuery.of("""
+            SELECT id, title, url, created_at, version FROM bookmarks
+            ORDER BY created_at DESC, id DESC
+            OFFSET :offset LIMIT :limit
+            """);
+    // Keyset (seek) pagination: rows after the cursor are located via idx_bookmarks_created_id
+    // instead of scanning and discarding 'offset' rows. The monthly partitions are read newest first (an ordered Append),
+    // so a page stops at the partitions it ends in.
+    private static final PreparedQuery SELECT_FIRST_BOOKMARKS_QUERY = PreparedQuery.of("""
+            SELECT id, title, url, created_at, version FROM bookmarks
+            WHERE created_at IS NOT NULL
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """);
+    // The plain 'created_at <=' repeats the row comparison in a form that prunes the partitions newer than the cursor
+    private static final PreparedQuery SELECT_BOOKMARKS_AFTER_CURSOR_QUERY = PreparedQuery.of("""
+            SELECT id, title, url, created_at, version FROM bookmarks
+            WHERE (created_at, id) < (:createdAt, :id) AND created_at <= :createdAt
+            ORDER BY created_at DESC, id DESC
+            LIMIT :limit
+            """);
+    private static final PreparedQuery SEARCH_FIRST_BOOKMARKS_QUERY = PreparedQuery.of("""
+            SELECT id, title, url, created_at, version, ts_rank(title_tsv, query) AS rank
+            FROM bookmarks, to_tsquery('english', :tsQuery) AS query
+            WHERE title_tsv @@ query OR url ILIKE :urlPattern
+            ORDER BY rank DESC, id DESC
+            LIMIT :limit
+            """);
+    private static final PreparedQuery SEARCH_BOOKMARKS_AFTER_CURSOR_QUERY = PreparedQuery.of("""
+            SELECT id, title, url, created_at, version, rank
+            FROM (SELECT id, title, url, created_at, version, ts_rank(title_tsv, query) AS rank
+                  FROM bookmarks, to_tsquery('english', :tsQuery) AS query
+                  WHERE title_tsv @@ query OR url ILIKE :urlPattern) AS hits
+            WHERE (rank, id) < (CAST(:rank AS real), :id)
+            ORDER BY rank DESC, id DESC
+            LIMIT :limit
+            """);
+    private static final PreparedQuery SELECT_BOOKMARK_BY_ID_QUERY = PreparedQuery.of("""
+            SELECT id, title, url, created_at, version FROM bookmarks WHERE id = :id
+            """);
+    private static final PreparedQuery SELECT_BOOKMARKS_BY_IDS_QUERY = PreparedQuery.of("""
+            SELECT id, title, url, created_at, version FROM bookmarks WHERE id = ANY(:ids)
+            """);
+    // The hash is served by the primary key of bookmark_urls, the canonical url then rules out a hash collision
+    private static final PreparedQuery SELECT_BOOKMARK_BY_URL_QUERY = PreparedQuery.of("""
+            SELECT b.id, b.title, b.url, b.created_at, b.version
+            FROM bookmark_urls u JOIN bookmarks b ON b.id = u.id
+            WHERE u.url_hash = bookmark_url_hash(:url) AND bookmark_canonical_url(b.url) = bookmark_canonical_url(:url)
+            """);
+    private static final PreparedQuery INSERT_BOOKMARK_QUERY = PreparedQuery.of("""
+            INSERT INTO bookmarks (title, url, created_at) VALUES (:title, :url, :createdAt)
+            RETURNING id
+            """);
+    // A partitioned table has no global unique index to resolve ON CONFLICT against, so the url hashes are claimed in
+    // bookmark_urls first (in input order, the first of two near-duplicates wins) and only the claimed rows inserted
+    private static final PreparedQuery INSERT_BOOKMARKS_QUERY = PreparedQuery.of("""
+            WITH input AS (SELECT t.title, t.url, t.ord, bookmark_url_hash(t.url) AS url_hash, nextval('bookmarks_id_seq') AS id
+                           FROM unnest(:titles, :urls) WITH ORDINALITY AS t(title, url, ord)),
+                 claimed AS (INSERT INTO bookmark_urls (url_hash, id)
+                             SELECT url_hash, id FROM input ORDER BY ord
+                             ON CONFLICT (url_hash) DO NOTHING
+                             RETURNING id)
+            INSERT INTO bookmarks (id, title, url, created_at)
+            SELECT i.id, i.title, i.url, :createdAt
+            FROM input i JOIN claimed c ON c.id = i.id
+            ORDER BY i.ord
+            RETURNING id, url
+            """);
+    // The url hash is claimed like in INSERT_BOOKMARKS_QUERY, no row comes back when the url already had a bookmark.
+    // A concurrent claim of the same url is waited for, so its bookmark is committed once this returns nothing.
+    private static final PreparedQuery INSERT_BOOKMARK_BY_URL_QUERY = PreparedQuery.of("""
+            WITH claimed AS (INSERT INTO bookmark_urls (url_hash, id)
+                             VALUES (bookmark_url_hash(:url), nextval('bookmarks_id_seq'))
+                             ON CONFLICT (url_hash) DO NOTHING
+                             RETURNING id)
+            INSERT INTO bookmarks (id, title, url, created_at)
+            SELECT id, :title, :url, :createdAt FROM claimed
+            RETURNING id
+            """);
+    // Returns the id of the bookmark that has the url, nothing when there is none. The row is only rewritten, and its
+    // version bumped, when the title changes, so repeating the same upsert leaves it as it was.
+    private static final PreparedQuery UPDATE_BOOKMARK_BY_URL_QUERY = PreparedQuery.of("""
+            WITH existing AS (SELECT b.id FROM bookmark_urls u JOIN bookmarks b ON b.id = u.id
+                              WHERE u.url_hash = bookmark_url_hash(:url)),
+                 updated AS (UPDATE bookmarks b
+                             SET title = :title, version = b.version + 1
+                             FROM existing e
+                             WHERE b.id = e.id AND b.title IS DISTINCT FROM :title)
+            SELECT id FROM existing
+            """);
+    private static final PreparedQuery UPDATE_BOOKMARK_QUERY = PreparedQuery.of("""
+            UPDATE bookmarks SET title = :title, url = :url, version = version + 1 WHERE id = :id
+            """);
+    private static final PreparedQuery DELETE_BOOKMARK_BY_ID_QUERY = PreparedQuery.of("""
+            DELETE FROM bookmarks WHERE id = :id
+            """);
+
+    // By column position, every bookmark query selects 'id, title, url, created_at, version' first and in this order
+    private static final RowMapper<Bookmark> BOOKMARK_ROW_MAPPER = (rs, rowNum) -> new Bookmark(
+            rs.getLong(1),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getObject(4, LocalDateTime.class),
+            rs.getLong(5));
+    private static final RowMapper<SearchHit> SEARCH_HIT_ROW_MAPPER = (rs, rowNum) ->
+            new SearchHit(BOOKMARK_ROW_MAPPER.mapRow(rs, rowNum), rs.getFloat("rank"));
+
+    /// A search result with the `ts_rank` it was ordered by, the rank is needed for the next page's cursor.
+    record SearchHit(Bookmark bookmark, float rank) {
+    }
+
+    /// The id of an upserted bookmark, `created` is `false` when a bookmark with the url already existed.
+    record Upserted(Long id, boolean created) {
+    }
+
     private final JdbcClient jdbcClient;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate snapshotTransaction;
+    private final BookmarkCache bookmarkCache;
+    private final BookmarkLookupBatcher lookupBatcher;
+    private final BookmarkQueryObserver queryObserver;
+    private final ReadYourWrites readYourWrites;
 
-    public BookmarkRepository(JdbcClient jdbcClient) {
+    public BookmarkRepository(JdbcClient jdbcClient, PlatformTransactionManager transactionManager, BookmarkCache bookmarkCache,
+                              BookmarkLookupBatchProperties bookmarkLookupBatchProperties, BookmarkQueryObserver queryObserver,
+                              ReadYourWrites readYourWrites) {
         this.jdbcClient = jdbcClient;
+        this.readYourWrites = readYourWrites;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.bookmarkCache = bookmarkCache;
+        this.queryObserver = queryObserver;
+        this.lookupBatcher = bookmarkLookupBatchProperties.enabled()
+                ? new BookmarkLookupBatcher(ids -> readOnlyTransaction.execute(status -> selectAllById(ids)),
+                        bookmarkLookupBatchProperties.maxWait(), bookmarkLookupBatchProperties.maxBatchSize())
+                : null;
     }
 
     @Transactional(readOnly = true)
     public List<Bookmark> findAll(Integer pageNumber, Integer pageSize) throws IllegalArgumentException {
-        final String SELECT_BOOKMARKS_QUERY = """
-                SELECT id, title, url, created_at FROM bookmarks
-                ORDER BY created_at DESC, id DESC
-                OFFSET :offset LIMIT :limit
-                """;
-
         // Getting offset value from pageNumber and pageSize
         var offset = (pageNumber * pageSize);
 
-        return jdbcClient.sql(SELECT_BOOKMARKS_QUERY)
-                .param("offset", offset)
-                .param("limit", pageSize)
-                .query(Bookmark.class)
-                .list();
+        return queryObserver.observe("findAll", "SELECT_BOOKMARKS_QUERY", KeyValues.of(BookmarkQueryObserver.pageDepth(pageNumber)),
+                () -> statement(SELECT_BOOKMARKS_QUERY, new MapSqlParameterSource()
+                                .addValue("offset", offset)
+                                .addValue("limit", pageSize))
+                        .query(BOOKMARK_ROW_MAPPER)
+                        .list(),
+                List::size);
     }
 
+    /// Same page as [#findAll(Integer, Integer)], handed to the consumer row by row instead of collected into a list.
     @Transactional(readOnly = true)
-    public Optional<Bookmark> findById(Long id) throws IllegalArgumentException {
-        final String SELECT_BOOKMARK_BY_ID_QUERY = """
-                SELECT id, title, url, created_at FROM bookmarks WHERE id = :id
+    public void findAll(Integer pageNumber, Integer pageSize, Consumer<Bookmark> consumer) throws IllegalArgumentException {
+        queryObserver.observe("findAll", "SELECT_BOOKMARKS_QUERY", KeyValues.of(BookmarkQueryObserver.pageDepth(pageNumber)), () -> {
+            try (Stream<Bookmark> bookmarks = statement(SELECT_BOOKMARKS_QUERY, new MapSqlParameterSource()
+                            .addValue("offset", pageNumber * pageSize)
+                            .addValue("limit", pageSize))
+                    .query(BOOKMARK_ROW_MAPPER)
+                    .stream()) {
+                return forEachCounted(bookmarks, consumer);
+            }
+        }, Integer::intValue);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Bookmark> findAllAfter(BookmarkCursor cursor, Integer limit) throws IllegalArgumentException {
+        if (isNull(cursor)) {
+            return queryObserver.observe("findAllAfter", "SELECT_FIRST_BOOKMARKS_QUERY",
+                    () -> statement(SELECT_FIRST_BOOKMARKS_QUERY, new MapSqlParameterSource("limit", limit))
+                            .query(BOOKMARK_ROW_MAPPER)
+                            .list(),
+                    List::size);
+        }
+        return queryObserver.observe("findAllAfter", "SELECT_BOOKMARKS_AFTER_CURSOR_QUERY",
+                () -> statement(SELECT_BOOKMARKS_AFTER_CURSOR_QUERY, new MapSqlParameterSource()
+                                .addValue("createdAt", cursor.createdAt())
+                                .addValue("id", cursor.id())
+                                .addValue("limit", limit))
+                        .query(BOOKMARK_ROW_MAPPER)
+                        .list(),
+                List::size);
+    }
+
+    /// Searches titles by word prefix through `idx_bookmarks_title_tsv` and urls by substring through
+    /// `idx_bookmarks_url_trgm`, ordered by title rank, then id. Url-only matches rank lowest.
+    @Transactional(readOnly = true)
+    public List<SearchHit> search(String q, BookmarkSearchCursor cursor, Integer limit) throws IllegalArgumentException {
+        if (isNull(cursor)) {
+            return queryObserver.observe("search", "SEARCH_FIRST_BOOKMARKS_QUERY",
+                    () -> statement(SEARCH_FIRST_BOOKMARKS_QUERY, new MapSqlParameterSource()
+                                    .addValue("tsQuery", toPrefixTsQuery(q))
+                                    .addValue("urlPattern", toContainsPattern(q))
+                                    .addValue("limit", limit))
+                            .query(SEARCH_HIT_ROW_MAPPER)
+                            .list(),
+                    List::size);
+        }
+        return queryObserver.observe("search", "SEARCH_BOOKMARKS_AFTER_CURSOR_QUERY",
+                () -> statement(SEARCH_BOOKMARKS_AFTER_CURSOR_QUERY, new MapSqlParameterSource()
+                                .addValue("tsQuery", toPrefixTsQuery(q))
+                                .addValue("urlPattern", toContainsPattern(q))
+                                .addValue("rank", cursor.rank())
+                                .addValue("id", cursor.id())
+                                .addValue("limit", limit))
+                        .query(SEARCH_HIT_ROW_MAPPER)
+                        .list(),
+                List::size);
+    }
+
+    /// Streams every bookmark to the consumer through a server-side cursor, holding at most one fetch of rows in memory.
+    /// The transaction is required: PgJDBC only honours the fetch size with auto-commit disabled. Its connection is held
+    /// until the consumer has taken the last row, so an export holds one for its whole download.
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<Bookmark> consumer) {
+        final String SELECT_ALL_BOOKMARKS_QUERY = """
+                SELECT id, title, url, created_at, version FROM bookmarks
+                """;
+
+        queryObserver.observe("exportAll", "SELECT_ALL_BOOKMARKS_QUERY", () -> {
+            try (Stream<Bookmark> bookmarks = jdbcClient.sql(SELECT_ALL_BOOKMARKS_QUERY)
+                    .withFetchSize(EXPORT_FETCH_SIZE)
+                    .query(BOOKMARK_ROW_MAPPER)
+                    .stream()) {
+                return forEachCounted(bookmarks, consumer);
+            }
+        }, Integer::intValue);
+    }
+
+    /// Returns the planner's row estimate summed over the partitions, `-1` while none has been vacuumed or analyzed.
+    public long estimateCount() {
+        final String SELECT_ESTIMATED_COUNT_QUERY = """
+                SELECT CASE WHEN max(c.reltuples) < 0 THEN -1 ELSE sum(GREATEST(c.reltuples, 0)) END::bigint
+                FROM pg_partition_tree('bookmarks') AS p JOIN pg_class c ON c.oid = p.relid
+                WHERE p.isleaf
+                """;
+
+        return queryObserver.observe("estimateCount", "SELECT_ESTIMATED_COUNT_QUERY",
+                () -> jdbcClient.sql(SELECT_ESTIMATED_COUNT_QUERY)
+                        .query(Long.class)
+                        .single(),
+                value -> 1);
+    }
+
+    /// Returns the exact row count, this scans the table and is only meant to be called through [BookmarkCounter].
+    public long count() {
+        final String SELECT_COUNT_QUERY = """
+                SELECT count(*) FROM bookmarks
+                """;
+
+        return queryObserver.observe("count", "SELECT_COUNT_QUERY",
+                () -> jdbcClient.sql(SELECT_COUNT_QUERY)
+                        .query(Long.class)
+                        .single(),
+                value -> 1);
+    }
+
+    /// Creates the missing monthly partitions up to the month `monthsAhead` from now, returns how many were created.
+    public int ensurePartitions(int monthsAhead) {
+        final String ENSURE_PARTITIONS_QUERY = """
+                SELECT ensure_bookmarks_partitions(LOCALTIMESTAMP + make_interval(months => :monthsAhead))
                 """;
 
-        return jdbcClient.sql(SELECT_BOOKMARK_BY_ID_QUERY)
-                .param("id", id)
-                .query(Bookmark.class)
+        return queryObserver.observe("ensurePartitions", "ENSURE_PARTITIONS_QUERY",
+                () -> jdbcClient.sql(ENSURE_PARTITIONS_QUERY)
+                        .param("monthsAhead", monthsAhead)
+                        .query(Integer.class)
+                        .single(),
+                Integer::intValue);
+    }
+
+    /// Runs the reads in one read-only `REPEATABLE READ` transaction, so they see the same snapshot of the same server.
+    /// A list ETag read from [#changeCount()] then always describes the page read with it.
+    public <T> T readSnapshot(Supplier<T> reads) {
+        return snapshotTransaction.execute(status -> reads.get());
+    }
+
+    /// Returns the table-level change counter, summed over its rows. It is bumped once per statement that writes a row
+    /// of `bookmarks`.
+    public long changeCount() {
+        final String SELECT_CHANGE_COUNT_QUERY = """
+                SELECT sum(change_count)::bigint FROM bookmarks_changes
+                """;
+
+        return queryObserver.observe("changeCount", "SELECT_CHANGE_COUNT_QUERY",
+                () -> jdbcClient.sql(SELECT_CHANGE_COUNT_QUERY)
+                        .query(Long.class)
+                        .single(),
+                value -> 1);
+    }
+
+    // Not @Transactional: a cache hit must not check out a pooled connection, only a miss opens its transaction
+    // A cache hit is observed too, it shows up as a fast call that waited for no connection
+    public Optional<Bookmark> findById(Long id) throws IllegalArgumentException {
+        return findById(id, () -> BookmarkBulkheads.Admission.NONE);
+    }
+
+    /// Like [#findById(Long)], but only a lookup that queries the database waits for `admitMiss`, a cache hit is
+    /// answered without a permit. Throws [BookmarkBulkheads.BulkheadFullException] when a miss is not admitted.
+    public Optional<Bookmark> findById(Long id, Supplier<BookmarkBulkheads.Admission> admitMiss) throws IllegalArgumentException {
+        return queryObserver.observe("findById", "SELECT_BOOKMARK_BY_ID_QUERY",
+                () -> findCachedById(id, admitMiss),
+                bookmark -> bookmark.isPresent() ? 1 : 0);
+    }
+
+    private Optional<Bookmark> findCachedById(Long id, Supplier<BookmarkBulkheads.Admission> admitMiss) {
+        // The caller's transaction already holds its connection
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return bookmarkCache.get(id, this::loadById);
+        }
+        // The routing sends a recent writer's own read to the primary, a batch or a cached replica read could miss its
+        // write. The primary's answer is current, so it replaces the cached one.
+        if (readYourWrites.isCallerReadingOwnWrites()) {
+            Optional<Bookmark> bookmark;
+            try (var admission = admitMiss.get()) {
+                bookmark = readOnlyTransaction.execute(status -> selectById(id));
+            }
+            bookmarkCache.put(id, bookmark);
+            return bookmark;
+        }
+        // A batched miss holds its permit until its batch answers, so a batch of n misses counts as n reads
+        Function<Long, Optional<Bookmark>> admittedLoader = missedId -> {
+            try (var admission = admitMiss.get()) {
+                return loadById(missedId);
+            }
+        };
+        // Within the window a replica may not have replayed the write yet, its answer must not fill the shared cache
+        if (readYourWrites.isRecentlyWritten(id)) {
+            return bookmarkCache.getWithoutCaching(id, admittedLoader);
+        }
+        return bookmarkCache.get(id, admittedLoader);
+    }
+
+    // A miss is loaded in a read-only transaction like the other reads, so replica routing sends it to the replica
+    private Optional<Bookmark> loadById(Long id) {
+        // A batch runs on its own connection and would not see the writes of the caller's transaction
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return selectById(id);
+        }
+        if (isNull(lookupBatcher)) {
+            return readOnlyTransaction.execute(status -> selectById(id));
+        }
+        return lookupBatcher.load(id);
+    }
+
+    private Optional<Bookmark> selectById(Long id) {
+        return statement(SELECT_BOOKMARK_BY_ID_QUERY, new MapSqlParameterSource("id", id))
+                .query(BOOKMARK_ROW_MAPPER)
                 .optional();
     }
 
+    private List<Bookmark> selectAllById(List<Long> ids) {
+        return statement(SELECT_BOOKMARKS_BY_IDS_QUERY, new MapSqlParameterSource("ids", ids.toArray(Long[]::new)))
+                .query(BOOKMARK_ROW_MAPPER)
+                .list();
+    }
+
+    /// Looks the bookmark up by its url through `bookmark_urls`, so any near-duplicate of the stored url
+    /// (scheme or host case, default port, trailing slash) finds it too.
+    @Transactional(readOnly = true)
+    public Optional<Bookmark> findByUrl(String url) throws IllegalArgumentException {
+        return queryObserver.observe("findByUrl", "SELECT_BOOKMARK_BY_URL_QUERY",
+                () -> statement(SELECT_BOOKMARK_BY_URL_QUERY, new MapSqlParameterSource("url", url))
+                        .query(BOOKMARK_ROW_MAPPER)
+                        .optional(),
+                bookmark -> bookmark.isPresent() ? 1 : 0);
+    }
+
     @Transactional(rollbackFor =  Exception.class)
     public Long save(Bookmark bookmark) {
-        final String INSERT_BOOKMARK_QUERY = """
-                INSERT INTO bookmarks (title, url, created_at) VALUES (:title, :url, :createdAt)
-                RETURNING id
-                """;
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
-        jdbcClient.sql(INSERT_BOOKMARK_QUERY)
-                .param("title", bookmark.title())
-                .param("url", bookmark.url())
-                .param("createdAt", Timestamp.from(Instant.now()))
-                .update(keyHolder);
-        return keyHolder.getKeyAs(Long.class);
+        queryObserver.observe("save", "INSERT_BOOKMARK_QUERY",
+                () -> statement(INSERT_BOOKMARK_QUERY, new MapSqlParameterSource()
+                                .addValue("title", bookmark.title())
+                                .addValue("url", bookmark.url())
+                                .addValue("createdAt", Timestamp.from(Instant.now())))
+                        .update(keyHolder),
+                Integer::intValue);
+        Long savedId = keyHolder.getKeyAs(Long.class);
+        // Drop any cached negative lookup for the new id
+        evictWritten(savedId);
+        return savedId;
     }
 
+    /// Inserts all bookmarks with a single multi-row `INSERT ... SELECT FROM unnest(...)` statement.
+    /// Returns the generated ids in input order, with `null` for an item whose url, or a near-duplicate of it,
+    /// already exists (in the table or earlier in the same batch).
     @Transactional(rollbackFor =  Exception.class)
-    public Boolean update(Bookmark bookmark) throws IllegalArgumentException {
-        final String UPDATE_BOOKMARK_QUERY = """
-                UPDATE bookmarks SET title = :title, url = :url WHERE id = :id
-                """;
+    public List<Long> saveAll(List<Bookmark> bookmarks) {
+        Map<String, Long> savedIdsByUrl = new HashMap<>();
+        queryObserver.observe("saveAll", "INSERT_BOOKMARKS_QUERY", () -> {
+            statement(INSERT_BOOKMARKS_QUERY, new MapSqlParameterSource()
+                            .addValue("titles", bookmarks.stream().map(Bookmark::title).toArray(String[]::new))
+                            .addValue("urls", bookmarks.stream().map(Bookmark::url).toArray(String[]::new))
+                            .addValue("createdAt", Timestamp.from(Instant.now())))
+                    .query((RowCallbackHandler) rs -> savedIdsByUrl.put(rs.getString("url"), rs.getLong("id")));
+            return savedIdsByUrl;
+        }, Map::size);
 
-        int updatedCount = jdbcClient.sql(UPDATE_BOOKMARK_QUERY)
-                .param("id", bookmark.id())
-                .param("title", bookmark.title())
-                .param("url", bookmark.url())
-                .update();
+        // Each returned id is claimed by the first item with that url, later duplicates get null
+        List<Long> savedIds = new ArrayList<>(bookmarks.size());
+        for (Bookmark bookmark : bookmarks) {
+            Long savedId = savedIdsByUrl.remove(bookmark.url());
+            if (nonNull(savedId)) {
+                evictWritten(savedId);
+            }
+            savedIds.add(savedId);
+        }
+        return savedIds;
+    }
+
+    /// Inserts the bookmark, or sets the title of the one that already has its url.
+    /// The update is a second statement, so under `READ COMMITTED` it sees the bookmark of a concurrent upsert whose
+    /// claim of the url made the insert return nothing. A url whose bookmark is deleted in between is claimed again.
+    @Transactional(rollbackFor =  Exception.class)
+    public Upserted upsertByUrl(Bookmark bookmark) {
+        var parameters = new MapSqlParameterSource()
+                .addValue("title", bookmark.title())
+                .addValue("url", bookmark.url())
+                .addValue("createdAt", Timestamp.from(Instant.now()));
+        for (int attempt = 1; attempt <= MAX_UPSERT_ATTEMPTS; attempt++) {
+            Optional<Long> createdId = queryObserver.observe("upsertByUrl", "INSERT_BOOKMARK_BY_URL_QUERY",
+                    () -> statement(INSERT_BOOKMARK_BY_URL_QUERY, parameters)
+                            .query(Long.class)
+                            .optional(),
+                    id -> id.isPresent() ? 1 : 0);
+            if (createdId.isPresent()) {
+                evictWritten(createdId.get());
+                return new Upserted(createdId.get(), true);
+            }
+            Optional<Long> updatedId = queryObserver.observe("upsertByUrl", "UPDATE_BOOKMARK_BY_URL_QUERY",
+                    () -> statement(UPDATE_BOOKMARK_BY_URL_QUERY, parameters)
+                            .query(Long.class)
+                            .optional(),
+                    id -> id.isPresent() ? 1 : 0);
+            if (updatedId.isPresent()) {
+                evictWritten(updatedId.get());
+                return new Upserted(updatedId.get(), false);
+            }
+        }
+        throw new IllegalStateException("Bookmark url kept changing while upserting: " + bookmark.url());
+    }
+
+    @Transactional(rollbackFor =  Exception.class)
+    public Boolean update(Bookmark bookmark) throws IllegalArgumentException {
+        int updatedCount = queryObserver.observe("update", "UPDATE_BOOKMARK_QUERY",
+                () -> statement(UPDATE_BOOKMARK_QUERY, new MapSqlParameterSource()
+                                .addValue("id", bookmark.id())
+                                .addValue("title", bookmark.title())
+                                .addValue("url", bookmark.url()))
+                        .update(),
+                Integer::intValue);
+        evictWritten(bookmark.id());
         if (updatedCount == 0) {
             throw new IllegalStateException("Bookmark NOT found with id: " + bookmark.id());
         }
@@ -85,16 +510,52 @@ class BookmarkRepository {
 
     @Transactional(rollbackFor =  Exception.class)
     public Boolean deleteById(Long id) throws IllegalArgumentException {
-        final String DELETE_BOOKMARK_BY_ID_QUERY = """
-                DELETE FROM bookmarks WHERE id = :id
-                """;
-
-        int deleted = jdbcClient.sql(DELETE_BOOKMARK_BY_ID_QUERY)
-                .param("id", id)
-                .update();
+        int deleted = queryObserver.observe("deleteById", "DELETE_BOOKMARK_BY_ID_QUERY",
+                () -> statement(DELETE_BOOKMARK_BY_ID_QUERY, new MapSqlParameterSource("id", id))
+                        .update(),
+                Integer::intValue);
+        evictWritten(id);
         if (deleted == 0) {
             throw new IllegalStateException("Bookmark NOT found with id: " + id);
         }
         return Boolean.TRUE;
     }
+
+    private void evictWritten(Long id) {
+        bookmarkCache.evict(id);
+        readYourWrites.recordWrite(id);
+    }
+
+    // Bound by index, the named form is kept for the slow-query log and its EXPLAIN
+    private JdbcClient.StatementSpec statement(PreparedQuery query, MapSqlParameterSource parameters) {
+        queryObserver.capture(new CapturedStatement(query.namedSql(), parameters));
+        return jdbcClient.sql(query.sql())
+                .params(query.values(parameters));
+    }
+
+    private static int forEachCounted(Stream<Bookmark> bookmarks, Consumer<Bookmark> consumer) {
+        var rowCount = new AtomicInteger();
+        bookmarks.forEach(bookmark -> {
+            consumer.accept(bookmark);
+            rowCount.incrementAndGet();
+        });
+        return rowCount.get();
+    }
+
+    // Every word becomes a prefix term ('postgre' matches 'PostgreSQL'), and all of them must match.
+    // Only letters and digits are kept, so user input can never produce a tsquery syntax error.
+    private static String toPrefixTsQuery(String q) {
+        return NON_WORD_CHARACTERS.splitAsStream(q)
+                .filter(term -> !term.isEmpty())
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    private static String toContainsPattern(String q) {
+        var escaped = q.strip()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
 }
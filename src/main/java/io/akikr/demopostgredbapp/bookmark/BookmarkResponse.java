@@ -0,0 +1,52 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import java.util.List;
+
+/// This interface is the closed set of JSON bodies returned by [BookmarkService].
+/// Each record keeps the field names of the former `Map.of(...)` envelopes, so the wire format is unchanged,
+/// and all of them are written by the hand-coded [BookmarkResponseSerializer] instead of reflective bean serialization.
+
+sealed interface BookmarkResponse {
+
+    /// A page of bookmarks, `nextCursor` is only written for keyset pages that have a next page,
+    /// and `total` only when a count mode was requested.
+    record Page(List<Bookmark> data, String nextCursor, Long total) implements BookmarkResponse {
+        Page(List<Bookmark> data) {
+            this(data, null, null);
+        }
+
+        Page(List<Bookmark> data, String nextCursor) {
+            this(data, nextCursor, null);
+        }
+    }
+
+    record Item(Bookmark data) implements BookmarkResponse {
+    }
+
+    record Created(Long id, String message) implements BookmarkResponse {
+    }
+
+    /// Per-item outcome of a batch insert, in input order.
+    record Batch(List<BatchItem> data) implements BookmarkResponse {
+    }
+
+    /// Either the generated `id` or the `error` for one batch item, the other one is `null` and not written.
+    record BatchItem(Long id, String error) {
+        static BatchItem created(Long id) {
+            return new BatchItem(id, null);
+        }
+
+        static BatchItem failed(String error) {
+            return new BatchItem(null, error);
+        }
+    }
+
+    record Imported(BookmarkCopyImporter.ImportResult data) implements BookmarkResponse {
+    }
+
+    record Message(String message) implements BookmarkResponse {
+    }
+
+    record Failure(String error) implements BookmarkResponse {
+    }
+}
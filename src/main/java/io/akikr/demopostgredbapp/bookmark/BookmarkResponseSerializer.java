@@ -0,0 +1,141 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.springframework.boot.jackson.JacksonComponent;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.SerializableString;
+import tools.jackson.core.io.SerializedString;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ValueSerializer;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/// This class writes every [BookmarkResponse] straight to the [JsonGenerator], without bean introspection or
+/// per-element runtime type lookup. Property names are pre-encoded once, and no reflection metadata is needed for
+/// the native image. The output matches what Jackson's default serialization produced for the former `Map` envelopes.
+
+@JacksonComponent
+final class BookmarkResponseSerializer extends ValueSerializer<BookmarkResponse> {
+
+    private static final SerializableString DATA = new SerializedString("data");
+    private static final SerializableString NEXT_CURSOR = new SerializedString("nextCursor");
+    private static final SerializableString TOTAL = new SerializedString("total");
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString TITLE = new SerializedString("title");
+    private static final SerializableString URL = new SerializedString("url");
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializableString MESSAGE = new SerializedString("message");
+    private static final SerializableString ERROR = new SerializedString("error");
+    private static final SerializableString ROWS_READ = new SerializedString("rowsRead");
+    private static final SerializableString ROWS_WRITTEN = new SerializedString("rowsWritten");
+    private static final SerializableString ROWS_REJECTED = new SerializedString("rowsRejected");
+    private static final SerializableString ELAPSED_MILLIS = new SerializedString("elapsedMillis");
+    private static final SerializableString ROWS_PER_SECOND = new SerializedString("rowsPerSecond");
+
+    @Override
+    public void serialize(BookmarkResponse response, JsonGenerator generator, SerializationContext context) {
+        generator.writeStartObject();
+        switch (response) {
+            case BookmarkResponse.Page page -> {
+                generator.writeName(DATA);
+                writeBookmarks(generator, page.data());
+                if (nonNull(page.nextCursor())) {
+                    generator.writeName(NEXT_CURSOR);
+                    generator.writeString(page.nextCursor());
+                }
+                if (nonNull(page.total())) {
+                    generator.writeName(TOTAL);
+                    generator.writeNumber(page.total());
+                }
+            }
+            case BookmarkResponse.Item item -> {
+                generator.writeName(DATA);
+                writeBookmark(generator, item.data());
+            }
+            case BookmarkResponse.Created created -> {
+                generator.writeName(ID);
+                writeLong(generator, created.id());
+                generator.writeName(MESSAGE);
+                generator.writeString(created.message());
+            }
+            case BookmarkResponse.Batch batch -> {
+                generator.writeName(DATA);
+                generator.writeStartArray();
+                for (BookmarkResponse.BatchItem item : batch.data()) {
+                    generator.writeStartObject();
+                    if (nonNull(item.id())) {
+                        generator.writeName(ID);
+                        generator.writeNumber(item.id());
+                    } else {
+                        generator.writeName(ERROR);
+                        generator.writeString(item.error());
+                    }
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            case BookmarkResponse.Imported imported -> {
+                var result = imported.data();
+                generator.writeName(DATA);
+                generator.writeStartObject();
+                generator.writeName(ROWS_READ);
+                generator.writeNumber(result.rowsRead());
+                generator.writeName(ROWS_WRITTEN);
+                generator.writeNumber(result.rowsWritten());
+                generator.writeName(ROWS_REJECTED);
+                generator.writeNumber(result.rowsRejected());
+                generator.writeName(ELAPSED_MILLIS);
+                generator.writeNumber(result.elapsedMillis());
+                generator.writeName(ROWS_PER_SECOND);
+                generator.writeNumber(result.rowsPerSecond());
+                generator.writeEndObject();
+            }
+            case BookmarkResponse.Message message -> {
+                generator.writeName(MESSAGE);
+                generator.writeString(message.message());
+            }
+            case BookmarkResponse.Failure failure -> {
+                generator.writeName(ERROR);
+                generator.writeString(failure.error());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    static void writeBookmarks(JsonGenerator generator, List<Bookmark> bookmarks) {
+        generator.writeStartArray();
+        for (Bookmark bookmark : bookmarks) {
+            writeBookmark(generator, bookmark);
+        }
+        generator.writeEndArray();
+    }
+
+    static void writeBookmark(JsonGenerator generator, Bookmark bookmark) {
+        generator.writeStartObject();
+        generator.writeName(ID);
+        writeLong(generator, bookmark.id());
+        generator.writeName(TITLE);
+        generator.writeString(bookmark.title());
+        generator.writeName(URL);
+        generator.writeString(bookmark.url());
+        generator.writeName(CREATED_AT);
+        if (isNull(bookmark.createdAt())) {
+            generator.writeNull();
+        } else {
+            // Same ISO-8601 text as Jackson's default LocalDateTime serializer
+            generator.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(bookmark.createdAt()));
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeLong(JsonGenerator generator, Long value) {
+        if (isNull(value)) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
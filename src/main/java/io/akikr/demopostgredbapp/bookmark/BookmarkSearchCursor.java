@@ -0,0 +1,39 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static java.util.Objects.isNull;
+
+/// This record represents a keyset pagination cursor over search results, holding the sort key `(rank, id)` of the
+/// last hit on a page. Like [BookmarkCursor] it is exchanged with clients as an opaque URL-safe Base64 token.
+/// The rank is carried as the exact `real` value Postgres returned, so the next page starts right after it.
+
+record BookmarkSearchCursor(float rank, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    static BookmarkSearchCursor of(BookmarkRepository.SearchHit hit) {
+        return new BookmarkSearchCursor(hit.rank(), hit.bookmark().id());
+    }
+
+    String encode() {
+        var raw = Float.toString(rank) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static BookmarkSearchCursor decode(String token) throws IllegalArgumentException {
+        if (isNull(token) || token.isBlank()) {
+            throw new IllegalArgumentException("cursor must not be blank");
+        }
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var separatorIndex = raw.lastIndexOf(SEPARATOR);
+            return new BookmarkSearchCursor(
+                    Float.parseFloat(raw.substring(0, separatorIndex)),
+                    Long.parseLong(raw.substring(separatorIndex + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -1,18 +1,36 @@
 package io.akikr.demopostgredbapp.bookmark;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Map;
+import java.io.InputStream;
+import java.util.List;
 
 sealed interface BookmarkService permits BookmarkServiceImpl{
 
-    ResponseEntity<Map<String, Object>> getAllBookmarks(Integer pageNumber, Integer pageSize);
+    ResponseEntity<BookmarkResponse> getAllBookmarks(Integer pageNumber, Integer pageSize, String total, String ifNoneMatch);
 
-    ResponseEntity<Map<String, Object>> getBookmarkById(Long id);
+    ResponseEntity<StreamingResponseBody> streamAllBookmarks(Integer pageNumber, Integer pageSize, String ifNoneMatch);
 
-    ResponseEntity<Map<String, Object>> createBookmark(Bookmark bookmark);
+    ResponseEntity<BookmarkResponse> getBookmarksByCursor(String cursor, Integer pageSize, String ifNoneMatch);
 
-    ResponseEntity<Map<String, Object>> updateBookmark(Bookmark bookmark);
+    ResponseEntity<BookmarkResponse> searchBookmarks(String q, String cursor, Integer pageSize);
 
-    ResponseEntity<Map<String, Object>> deleteBookmarkById(Long id);
+    ResponseEntity<BookmarkResponse> getBookmarkById(Long id, String ifNoneMatch);
+
+    ResponseEntity<BookmarkResponse> getBookmarkByUrl(String url, String ifNoneMatch);
+
+    ResponseEntity<BookmarkResponse> createBookmark(Bookmark bookmark);
+
+    ResponseEntity<BookmarkResponse> createBookmarks(List<Bookmark> bookmarks);
+
+    ResponseEntity<StreamingResponseBody> exportBookmarks();
+
+    ResponseEntity<BookmarkResponse> importBookmarks(InputStream input, String contentType, String onConflict);
+
+    ResponseEntity<BookmarkResponse> updateBookmark(Bookmark bookmark);
+
+    ResponseEntity<BookmarkResponse> upsertBookmarkByUrl(Bookmark bookmark);
+
+    ResponseEntity<BookmarkResponse> deleteBookmarkById(Long id);
 }
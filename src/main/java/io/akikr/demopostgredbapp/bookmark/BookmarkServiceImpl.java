@@ -1,114 +1,640 @@
 package io.akikr.demopostgredbapp.bookmark;
 
+import io.akikr.demopostgredbapp.config.BookmarkCountProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 
 @Service
 final class BookmarkServiceImpl implements BookmarkService {
 
     private static final Logger log = LoggerFactory.getLogger(BookmarkServiceImpl.class);
+    private static final int MAX_BATCH_SIZE = 1000;
+    // Also keeps the extra row fetched by the keyset and search pages ('pageSize + 1') from overflowing
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MIN_SEARCH_LENGTH = 3;
+    private static final int MAX_SEARCH_LENGTH = 200;
+    private static final int EXPORT_FLUSH_INTERVAL = 1000;
+    private static final String WRITE_BEHIND_RETRY_AFTER_SECONDS = "1";
+    private static final String BULKHEAD_RETRY_AFTER_SECONDS = "1";
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     private final BookmarkRepository bookmarkRepository;
+    private final BookmarkCounter bookmarkCounter;
+    private final BookmarkCopyImporter bookmarkCopyImporter;
+    private final BookmarkWriteBehind bookmarkWriteBehind;
+    private final BookmarkBulkheads bookmarkBulkheads;
+    private final ObjectWriter exportWriter;
 
-    public BookmarkServiceImpl(BookmarkRepository bookmarkRepository) {
+    public BookmarkServiceImpl(BookmarkRepository bookmarkRepository, BookmarkCounter bookmarkCounter,
+                               BookmarkCopyImporter bookmarkCopyImporter, BookmarkWriteBehind bookmarkWriteBehind,
+                               BookmarkBulkheads bookmarkBulkheads, JsonMapper jsonMapper) {
         this.bookmarkRepository = bookmarkRepository;
+        this.bookmarkCounter = bookmarkCounter;
+        this.bookmarkCopyImporter = bookmarkCopyImporter;
+        this.bookmarkWriteBehind = bookmarkWriteBehind;
+        this.bookmarkBulkheads = bookmarkBulkheads;
+        // Rows are flushed in chunks by the export loop, not after every value
+        this.exportWriter = jsonMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @Override
-    public ResponseEntity<Map<String, Object>> getAllBookmarks(Integer pageNumber, Integer pageSize) {
+    public ResponseEntity<BookmarkResponse> getAllBookmarks(Integer pageNumber, Integer pageSize, String total, String ifNoneMatch) {
         log.info("Fetching all bookmarks for pageNumber[{}] and pageSize[{}]", pageNumber, pageSize);
         try {
             // Checking for valid pageNumber or pageSize
             isPageNumberOrPageSizeValid(pageNumber, pageSize);
+            var countMode = isNull(total) ? bookmarkCounter.defaultMode() : countModeOf(total);
 
-            List<Bookmark> bookmarks = bookmarkRepository.findAll(pageNumber, pageSize);
-            if (bookmarks.isEmpty()) {
-                log.warn("No bookmarks found for pageNumber[{}] and pageSize[{}]", pageNumber, pageSize);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of("message", "Bookmarks not found"));
+            try (var admission = bookmarkBulkheads.read()) {
+                // The ETag and the page come from one snapshot, a page older than its ETag would be answered with 304
+                return bookmarkRepository.readSnapshot(() -> {
+                    String eTag = changeCountETag();
+                    if (BookmarkETags.matches(ifNoneMatch, eTag)) {
+                        return notModified(eTag);
+                    }
+                    List<Bookmark> bookmarks = bookmarkRepository.findAll(pageNumber, pageSize);
+                    if (bookmarks.isEmpty()) {
+                        log.warn("No bookmarks found for pageNumber[{}] and pageSize[{}]", pageNumber, pageSize);
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                .body(new BookmarkResponse.Message("Bookmarks not found"));
+                    }
+                    return ResponseEntity.ok()
+                            .eTag(eTag)
+                            .body(new BookmarkResponse.Page(bookmarks, null, bookmarkCounter.total(countMode)));
+                });
             }
-            return ResponseEntity.ok()
-                    .body(Map.of("data", bookmarks));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid request for all bookmarks for pageNumber[{}] and pageSize[{}], due to: {}", pageNumber, pageSize, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
         } catch (Exception e) {
             log.error("Error fetching all bookmarks for pageNumber[{}] and pageSize[{}], due to: {}", pageNumber, pageSize, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "An error occurred while fetching the bookmark"));
+                    .body(new BookmarkResponse.Failure("An error occurred while fetching the bookmark"));
+        }
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamAllBookmarks(Integer pageNumber, Integer pageSize, String ifNoneMatch) {
+        log.info("Streaming all bookmarks for pageNumber[{}] and pageSize[{}]", pageNumber, pageSize);
+        try {
+            // Checking for valid pageNumber or pageSize
+            isPageNumberOrPageSizeValid(pageNumber, pageSize);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid request for bookmarks stream, due to: {}", e.getMessage());
+            return streamedFailure(ResponseEntity.status(HttpStatus.BAD_REQUEST), MediaType.APPLICATION_JSON, e.getMessage());
+        }
+        BookmarkBulkheads.Admission admission;
+        try {
+            // Held until the body is written, it is released by the body or on the way out of here
+            admission = bookmarkBulkheads.read();
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return streamedServiceUnavailable(e, MediaType.APPLICATION_JSON);
+        }
+        String eTag;
+        try {
+            // The rows are streamed after the status is sent, in a later read-only transaction on the same server, so they
+            // are at least as new as the counter read here
+            eTag = bookmarkRepository.readSnapshot(this::changeCountETag);
+        } catch (RuntimeException e) {
+            admission.close();
+            throw e;
+        }
+        if (BookmarkETags.matches(ifNoneMatch, eTag)) {
+            admission.close();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .build();
+        }
+        // Rows go from the result set straight into the response, the page is never collected into a List.
+        // The status is committed before the query runs, so an empty page is a 200 with an empty 'data' array.
+        StreamingResponseBody body = outputStream -> {
+            try (admission; JsonGenerator generator = exportWriter.createGenerator(outputStream)) {
+                generator.writeStartObject();
+                generator.writeName("data");
+                generator.writeStartArray();
+                bookmarkRepository.findAll(pageNumber, pageSize, bookmark -> BookmarkResponseSerializer.writeBookmark(generator, bookmark));
+                generator.writeEndArray();
+                generator.writeEndObject();
+            } catch (Exception e) {
+                log.error("Error streaming bookmarks for pageNumber[{}] and pageSize[{}], due to: {}", pageNumber, pageSize, e.getMessage());
+                throw e;
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(eTag)
+                .body(body);
+    }
+
+    @Override
+    public ResponseEntity<BookmarkResponse> getBookmarksByCursor(String cursor, Integer pageSize, String ifNoneMatch) {
+        log.info("Fetching bookmarks after cursor[{}] and pageSize[{}]", cursor, pageSize);
+        try {
+            // Checking for valid pageSize
+            isPageNumberOrPageSizeValid(0, pageSize);
+
+            // An empty cursor starts from the newest bookmark
+            BookmarkCursor after = (isNull(cursor) || cursor.isBlank()) ? null : BookmarkCursor.decode(cursor);
+
+            try (var admission = bookmarkBulkheads.read()) {
+                // The ETag and the page come from one snapshot, like in getAllBookmarks
+                return bookmarkRepository.readSnapshot(() -> {
+                    String eTag = changeCountETag();
+                    if (BookmarkETags.matches(ifNoneMatch, eTag)) {
+                        return notModified(eTag);
+                    }
+
+                    // Fetching one extra row tells whether a next page exists without a separate COUNT query
+                    List<Bookmark> bookmarks = bookmarkRepository.findAllAfter(after, pageSize + 1);
+                    if (bookmarks.isEmpty()) {
+                        log.warn("No bookmarks found after cursor[{}] and pageSize[{}]", cursor, pageSize);
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                .body(new BookmarkResponse.Message("Bookmarks not found"));
+                    }
+                    if (bookmarks.size() > pageSize) {
+                        List<Bookmark> page = bookmarks.subList(0, pageSize);
+                        return ResponseEntity.ok()
+                                .eTag(eTag)
+                                .body(new BookmarkResponse.Page(page, BookmarkCursor.of(page.getLast()).encode()));
+                    }
+                    return ResponseEntity.ok()
+                            .eTag(eTag)
+                            .body(new BookmarkResponse.Page(bookmarks));
+                });
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid request for bookmarks after cursor[{}] and pageSize[{}], due to: {}", cursor, pageSize, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
+        } catch (Exception e) {
+            log.error("Error fetching bookmarks after cursor[{}] and pageSize[{}], due to: {}", cursor, pageSize, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new BookmarkResponse.Failure("An error occurred while fetching the bookmark"));
+        }
+    }
+
+    @Override
+    public ResponseEntity<BookmarkResponse> searchBookmarks(String q, String cursor, Integer pageSize) {
+        log.info("Searching bookmarks for q[{}] after cursor[{}] and pageSize[{}]", q, cursor, pageSize);
+        try {
+            // Checking for valid search text and pageSize
+            isSearchTextValid(q);
+            isPageNumberOrPageSizeValid(0, pageSize);
+
+            BookmarkSearchCursor after = (isNull(cursor) || cursor.isBlank()) ? null : BookmarkSearchCursor.decode(cursor);
+
+            try (var admission = bookmarkBulkheads.read()) {
+                // Fetching one extra row tells whether a next page exists without a separate COUNT query
+                List<BookmarkRepository.SearchHit> hits = bookmarkRepository.search(q, after, pageSize + 1);
+                // No hits is a valid search outcome, not a missing resource
+                if (hits.size() > pageSize) {
+                    List<BookmarkRepository.SearchHit> page = hits.subList(0, pageSize);
+                    return ResponseEntity.ok()
+                            .body(new BookmarkResponse.Page(
+                                    page.stream().map(BookmarkRepository.SearchHit::bookmark).toList(),
+                                    BookmarkSearchCursor.of(page.getLast()).encode()));
+                }
+                return ResponseEntity.ok()
+                        .body(new BookmarkResponse.Page(hits.stream().map(BookmarkRepository.SearchHit::bookmark).toList()));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid search request for q[{}], due to: {}", q, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
+        } catch (Exception e) {
+            log.error("Error searching bookmarks for q[{}], due to: {}", q, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new BookmarkResponse.Failure("An error occurred while searching the bookmarks"));
         }
     }
 
     @Override
-    public ResponseEntity<Map<String, Object>> getBookmarkById(Long id) {
+    public ResponseEntity<BookmarkResponse> getBookmarkById(Long id, String ifNoneMatch) {
         log.info("Fetching bookmark by ID: {}", id);
         try {
-            Bookmark bookmark = bookmarkRepository.findById(id)
+            // Only a cache miss waits for a read permit, a hit takes no connection
+            Bookmark bookmark = bookmarkRepository.findById(id, bookmarkBulkheads::read)
                     .orElseThrow(() -> new IllegalStateException("Bookmark NOT found with id: " + id));
+            String eTag = BookmarkETags.of(bookmark);
+            if (BookmarkETags.matches(ifNoneMatch, eTag)) {
+                return notModified(eTag);
+            }
             return ResponseEntity.ok()
-                    .body(Map.of("data", bookmark));
+                    .eTag(eTag)
+                    .body(new BookmarkResponse.Item(bookmark));
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", e.getMessage()));
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
         } catch (Exception e) {
             log.error("Error fetching bookmark by ID: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "An error occurred while fetching the bookmark"));
+                    .body(new BookmarkResponse.Failure("An error occurred while fetching the bookmark"));
         }
     }
 
     @Override
-    public ResponseEntity<Map<String, Object>> createBookmark(Bookmark bookmark) {
+    public ResponseEntity<BookmarkResponse> getBookmarkByUrl(String url, String ifNoneMatch) {
+        log.info("Fetching bookmark by URL: {}", url);
+        try {
+            // Checking for a url before any connection is taken
+            isUrlPresent(url);
+
+            try (var admission = bookmarkBulkheads.read()) {
+                Bookmark bookmark = bookmarkRepository.findByUrl(url)
+                        .orElseThrow(() -> new IllegalStateException("Bookmark NOT found with URL: " + url));
+                String eTag = BookmarkETags.of(bookmark);
+                if (BookmarkETags.matches(ifNoneMatch, eTag)) {
+                    return notModified(eTag);
+                }
+                return ResponseEntity.ok()
+                        .eTag(eTag)
+                        .body(new BookmarkResponse.Item(bookmark));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid request for bookmark by URL: {}, due to: {}", url, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
+        } catch (Exception e) {
+            log.error("Error fetching bookmark by URL: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new BookmarkResponse.Failure("An error occurred while fetching the bookmark"));
+        }
+    }
+
+    @Override
+    public ResponseEntity<BookmarkResponse> createBookmark(Bookmark bookmark) {
         log.info("Creating bookmark with title: {}", bookmark.title());
         try {
-            Long savedId = requireNonNull(bookmarkRepository.save(bookmark), "Failed to create bookmark");
-            log.info("Bookmark created successfully with ID: {}", savedId);
-            return ResponseEntity.status(HttpStatus.CREATED)
-                    .body(Map.of("id", savedId, "message", "Bookmark created successfully"));
+            // Checking for a valid bookmark before any connection is taken
+            BookmarkValidator.validate(bookmark);
+
+            if (bookmarkWriteBehind.isEnabled()) {
+                return createBookmarkWriteBehind(bookmark);
+            }
+            try (var admission = bookmarkBulkheads.write()) {
+                Long savedId = requireNonNull(bookmarkRepository.save(bookmark), "Failed to create bookmark");
+                log.info("Bookmark created successfully with ID: {}", savedId);
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .body(new BookmarkResponse.Created(savedId, "Bookmark created successfully"));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid bookmark with title: {}, due to: {}", bookmark.title(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (DuplicateKeyException e) {
+            log.warn("Bookmark already exists with URL: {}", bookmark.url());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new BookmarkResponse.Failure("Bookmark already exists with URL: " + bookmark.url()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejected bookmark with title: {}, due to: {}", bookmark.title(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, WRITE_BEHIND_RETRY_AFTER_SECONDS)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
         } catch (Exception e) {
             log.error("Error creating bookmark: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", e.getMessage()));
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
         }
     }
 
+    // The write joins the next group commit, the url conflict is reported like in a batch instead of failing the group
+    private ResponseEntity<BookmarkResponse> createBookmarkWriteBehind(Bookmark bookmark) {
+        Long savedId = bookmarkWriteBehind.save(bookmark);
+        if (isNull(savedId)) {
+            log.warn("Bookmark already exists with URL: {}", bookmark.url());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new BookmarkResponse.Failure("Bookmark already exists with URL: " + bookmark.url()));
+        }
+        log.info("Bookmark created successfully with ID: {}", savedId);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(new BookmarkResponse.Created(savedId, "Bookmark created successfully"));
+    }
+
     @Override
-    public ResponseEntity<Map<String, Object>> updateBookmark(Bookmark bookmark) {
+    public ResponseEntity<BookmarkResponse> createBookmarks(List<Bookmark> bookmarks) {
+        log.info("Creating batch of {} bookmarks", isNull(bookmarks) ? 0 : bookmarks.size());
+        try {
+            // Checking for valid batch size
+            isBatchSizeValid(bookmarks);
+
+            // Invalid items are reported individually and never sent to the database
+            List<String> violations = bookmarks.stream()
+                    .map(BookmarkValidator::violationOf)
+                    .toList();
+            List<Bookmark> validBookmarks = new ArrayList<>(bookmarks.size());
+            for (int i = 0; i < bookmarks.size(); i++) {
+                if (isNull(violations.get(i))) {
+                    validBookmarks.add(bookmarks.get(i));
+                }
+            }
+            Iterator<Long> savedIds = Collections.emptyIterator();
+            if (!validBookmarks.isEmpty()) {
+                try (var admission = bookmarkBulkheads.write()) {
+                    savedIds = bookmarkRepository.saveAll(validBookmarks).iterator();
+                }
+            }
+
+            List<BookmarkResponse.BatchItem> results = new ArrayList<>(bookmarks.size());
+            int createdCount = 0;
+            for (int i = 0; i < bookmarks.size(); i++) {
+                Bookmark bookmark = bookmarks.get(i);
+                if (nonNull(violations.get(i))) {
+                    results.add(BookmarkResponse.BatchItem.failed(violations.get(i)));
+                    continue;
+                }
+                Long savedId = savedIds.next();
+                if (isNull(savedId)) {
+                    results.add(BookmarkResponse.BatchItem.failed("Bookmark already exists with URL: " + bookmark.url()));
+                    continue;
+                }
+                results.add(BookmarkResponse.BatchItem.created(savedId));
+                createdCount++;
+            }
+            log.info("Batch created {} of {} bookmarks", createdCount, bookmarks.size());
+            return ResponseEntity.status(createdCount > 0 ? HttpStatus.CREATED : HttpStatus.CONFLICT)
+                    .body(new BookmarkResponse.Batch(results));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid batch of bookmarks, due to: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
+        } catch (Exception e) {
+            log.error("Error creating batch of bookmarks: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new BookmarkResponse.Failure("An error occurred while creating the bookmarks"));
+        }
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> exportBookmarks() {
+        log.info("Exporting all bookmarks as NDJSON");
+        BookmarkBulkheads.Admission admission;
+        try {
+            // Held for the whole download, like its connection, so it is an export permit and not a read permit
+            admission = bookmarkBulkheads.export();
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return streamedServiceUnavailable(e, MediaType.APPLICATION_NDJSON);
+        }
+        StreamingResponseBody body = outputStream -> {
+            var exportedCount = new AtomicLong();
+            try (admission; JsonGenerator generator = exportWriter.createGenerator(outputStream)) {
+                bookmarkRepository.exportAll(bookmark -> {
+                    exportWriter.writeValue(generator, bookmark);
+                    generator.writeRaw('\n');
+                    // Flush the first row right away so the client gets its first byte before the result set is read
+                    if (exportedCount.getAndIncrement() % EXPORT_FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                });
+            } catch (Exception e) {
+                log.error("Error exporting bookmarks after {} rows, due to: {}", exportedCount.get(), e.getMessage());
+                throw e;
+            }
+            log.info("Exported {} bookmarks", exportedCount.get());
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @Override
+    public ResponseEntity<BookmarkResponse> importBookmarks(InputStream input, String contentType, String onConflict) {
+        log.info("Importing bookmarks from [{}] with onConflict[{}]", contentType, onConflict);
+        try {
+            var format = importFormatOf(contentType);
+            var conflictMode = BookmarkCopyImporter.OnConflict.valueOf(onConflict.toUpperCase(Locale.ROOT));
+
+            try (var admission = bookmarkBulkheads.write()) {
+                var importResult = bookmarkCopyImporter.importBookmarks(input, format, conflictMode);
+                return ResponseEntity.ok()
+                        .body(new BookmarkResponse.Imported(importResult));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid import of bookmarks from [{}], due to: {}", contentType, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
+        } catch (Exception e) {
+            log.error("Error importing bookmarks: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        }
+    }
+
+    @Override
+    public ResponseEntity<BookmarkResponse> updateBookmark(Bookmark bookmark) {
         log.info("Updating bookmark with ID: {}", bookmark.id());
         try {
+            // Checking for a valid bookmark before any connection is taken
+            isIdPresent(bookmark.id());
+            BookmarkValidator.validate(bookmark);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid bookmark with ID: {}, due to: {}", bookmark.id(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        }
+        try (var admission = bookmarkBulkheads.write()) {
             Boolean isUpdated = bookmarkRepository.update(bookmark);
             if (isUpdated) {
                 log.info("Bookmark with ID: {} updated successfully", bookmark.id());
                 return ResponseEntity.status(HttpStatus.NO_CONTENT)
-                        .body(Map.of("message", "Bookmark updated successfully"));
+                        .body(new BookmarkResponse.Message("Bookmark updated successfully"));
             }
+        } catch (DuplicateKeyException e) {
+            log.warn("Bookmark already exists with URL: {}", bookmark.url());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new BookmarkResponse.Failure("Bookmark already exists with URL: " + bookmark.url()));
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
         } catch (Exception e) {
             log.error("{}", e.getMessage());
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(Map.of("error", "Bookmark not found with ID: " + bookmark.id()));
+                .body(new BookmarkResponse.Failure("Bookmark not found with ID: " + bookmark.id()));
     }
 
+    // Idempotent: the same request always ends with the same row, so clients may retry it freely
     @Override
-    public ResponseEntity<Map<String, Object>> deleteBookmarkById(Long id) {
-    log.info("Deleting bookmark with ID: {}", id);
+    public ResponseEntity<BookmarkResponse> upsertBookmarkByUrl(Bookmark bookmark) {
+        log.info("Upserting bookmark with URL: {}", bookmark.url());
         try {
+            // Checking for a valid bookmark before any connection is taken
+            BookmarkValidator.validate(bookmark);
+
+            try (var admission = bookmarkBulkheads.write()) {
+                var upserted = bookmarkRepository.upsertByUrl(bookmark);
+                if (upserted.created()) {
+                    log.info("Bookmark created successfully with ID: {}", upserted.id());
+                    return ResponseEntity.status(HttpStatus.CREATED)
+                            .body(new BookmarkResponse.Created(upserted.id(), "Bookmark created successfully"));
+                }
+                log.info("Bookmark with ID: {} updated successfully", upserted.id());
+                return ResponseEntity.ok()
+                        .body(new BookmarkResponse.Created(upserted.id(), "Bookmark updated successfully"));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid bookmark with URL: {}, due to: {}", bookmark.url(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage()));
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
+        } catch (Exception e) {
+            log.error("Error upserting bookmark: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new BookmarkResponse.Failure("An error occurred while saving the bookmark"));
+        }
+    }
+
+    @Override
+    public ResponseEntity<BookmarkResponse> deleteBookmarkById(Long id) {
+    log.info("Deleting bookmark with ID: {}", id);
+        try (var admission = bookmarkBulkheads.write()) {
             Boolean isDeleted = bookmarkRepository.deleteById(id);
             if (isDeleted) {
                 log.info("Bookmark with ID: {} deleted successfully", id);
                 return ResponseEntity.status(HttpStatus.NO_CONTENT)
-                        .body(Map.of("message", "Bookmark deleted successfully"));
+                        .body(new BookmarkResponse.Message("Bookmark deleted successfully"));
             }
+        } catch (BookmarkBulkheads.BulkheadFullException e) {
+            return serviceUnavailable(e);
         } catch (Exception e) {
             log.error("{}", e.getMessage());
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(Map.of("error", "Bookmark not found with ID: " + id));
+                .body(new BookmarkResponse.Failure("Bookmark not found with ID: " + id));
+    }
+
+    // Read before the rows and inside readSnapshot: the counter comes from the server and snapshot the rows come from
+    private String changeCountETag() {
+        return BookmarkETags.ofChangeCount(bookmarkRepository.changeCount());
+    }
+
+    // The bulkhead rejects before any connection is taken, a retry after a short pause finds the queue drained
+    private static ResponseEntity<BookmarkResponse> serviceUnavailable(BookmarkBulkheads.BulkheadFullException e) {
+        log.warn("Rejected bookmark request, due to: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, BULKHEAD_RETRY_AFTER_SECONDS)
+                .body(new BookmarkResponse.Failure(e.getMessage()));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamedServiceUnavailable(BookmarkBulkheads.BulkheadFullException e,
+                                                                             MediaType contentType) {
+        log.warn("Rejected bookmark request, due to: {}", e.getMessage());
+        return streamedFailure(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, BULKHEAD_RETRY_AFTER_SECONDS), contentType, e.getMessage());
+    }
+
+    // The streamed endpoints write an error as the same 'error' object as a BookmarkResponse.Failure
+    private ResponseEntity<StreamingResponseBody> streamedFailure(ResponseEntity.BodyBuilder response, MediaType contentType,
+                                                                  String message) {
+        return response.contentType(contentType)
+                .body(outputStream -> {
+                    try (JsonGenerator generator = exportWriter.createGenerator(outputStream)) {
+                        generator.writeStartObject();
+                        generator.writeStringProperty("error", message);
+                        generator.writeEndObject();
+                    }
+                });
+    }
+
+    private static ResponseEntity<BookmarkResponse> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .build();
+    }
+
+    private static BookmarkCopyImporter.Format importFormatOf(String contentType) throws IllegalArgumentException {
+        var mediaType = MediaType.parseMediaType(contentType);
+        if (TEXT_CSV.isCompatibleWith(mediaType)) {
+            return BookmarkCopyImporter.Format.CSV;
+        }
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(mediaType)) {
+            return BookmarkCopyImporter.Format.NDJSON;
+        }
+        throw new IllegalArgumentException("Unsupported import content type: " + contentType);
+    }
+
+    // Mapped one by one, an enum lookup would answer an unknown value with the enum's class name
+    private static BookmarkCountProperties.Mode countModeOf(String total) throws IllegalArgumentException {
+        return switch (total.toLowerCase(Locale.ROOT)) {
+            case "none" -> BookmarkCountProperties.Mode.NONE;
+            case "estimate" -> BookmarkCountProperties.Mode.ESTIMATE;
+            case "exact" -> BookmarkCountProperties.Mode.EXACT;
+            default -> throw new IllegalArgumentException("total must be one of none, estimate, exact");
+        };
+    }
+
+    // Shorter text has no trigrams, the url match would then scan every row
+    private static void isSearchTextValid(String q) throws IllegalArgumentException {
+        if (isNull(q) || q.strip().length() < MIN_SEARCH_LENGTH) {
+            throw new IllegalArgumentException("q must be at least " + MIN_SEARCH_LENGTH + " characters");
+        }
+        if (q.length() > MAX_SEARCH_LENGTH) {
+            throw new IllegalArgumentException("q must be at most " + MAX_SEARCH_LENGTH + " characters");
+        }
+    }
+
+    private static void isBatchSizeValid(List<Bookmark> bookmarks) throws IllegalArgumentException {
+        if (isNull(bookmarks) || bookmarks.isEmpty()) {
+            throw new IllegalArgumentException("bookmarks must not be empty");
+        }
+        if (bookmarks.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("bookmarks must not exceed " + MAX_BATCH_SIZE + " items");
+        }
+    }
+
+    private static void isUrlPresent(String url) throws IllegalArgumentException {
+        if (isNull(url) || url.isBlank()) {
+            throw new IllegalArgumentException("url cannot be NULL or Blank");
+        }
+    }
+
+    private static void isIdPresent(Long id) throws IllegalArgumentException {
+        if (isNull(id)) {
+            throw new IllegalArgumentException("id cannot be NULL");
+        }
     }
 
     private static void isPageNumberOrPageSizeValid(Integer pageNumber, Integer pageSize) throws IllegalStateException {
@@ -118,5 +644,8 @@ final class BookmarkServiceImpl implements BookmarkService {
         if (isNull(pageSize) || pageSize <= 0) {
             throw new IllegalArgumentException("pageSize must be greater than 0");
         }
+        if (pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must not exceed " + MAX_PAGE_SIZE);
+        }
     }
 }
@@ -0,0 +1,27 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/// This class exposes the slow-query log at `/actuator/slowqueries`, newest first. It is read-only and only exposed when
+/// listed in `management.endpoints.web.exposure.include`, since it shows the captured SQL. Only the prod profile lists
+/// it, on a management port kept off the public network.
+
+@Component
+@Endpoint(id = "slowqueries")
+class BookmarkSlowQueryEndpoint {
+
+    private final BookmarkSlowQueryLog bookmarkSlowQueryLog;
+
+    public BookmarkSlowQueryEndpoint(BookmarkSlowQueryLog bookmarkSlowQueryLog) {
+        this.bookmarkSlowQueryLog = bookmarkSlowQueryLog;
+    }
+
+    @ReadOperation
+    public List<BookmarkSlowQueryLog.SlowQuery> slowQueries() {
+        return bookmarkSlowQueryLog.slowQueries();
+    }
+}
@@ -0,0 +1,187 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.CapturedStatement;
+import io.akikr.demopostgredbapp.config.SlowQueryProperties;
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/// This class keeps the last `maxCaptured` repository operations that took longer than the slow-query threshold,
+/// with their SQL, redacted bind parameters and timing, and publishes them through [BookmarkSlowQueryEndpoint].
+/// For a sampled share of slow `SELECT`s the plan is captured by re-running the statement under
+/// `EXPLAIN (ANALYZE, BUFFERS)` on a virtual thread, one at a time and in a read-only transaction that is rolled back.
+/// That transaction is only made read-only in the database, so replica routing keeps it on the primary: a SELECT slow
+/// inside a write transaction ran there, and the replica is left to the read traffic.
+
+@Component
+class BookmarkSlowQueryLog implements ObservationHandler<Observation.Context> {
+
+    private static final Logger log = LoggerFactory.getLogger(BookmarkSlowQueryLog.class);
+    private static final String START_NANOS_KEY = BookmarkSlowQueryLog.class.getName() + ".startNanos";
+    private static final String REDACTED = "***";
+
+    /// A captured slow operation, `sql` and `parameters` are `null` for statements without bind parameters.
+    record SlowQuery(Instant capturedAt, String operation, String queryName, String sql, Map<String, Object> parameters,
+                     long durationMillis, String rowCount, String plan) {
+
+        SlowQuery withPlan(String plan) {
+            return new SlowQuery(capturedAt, operation, queryName, sql, parameters, durationMillis, rowCount, plan);
+        }
+    }
+
+    private final SlowQueryProperties slowQueryProperties;
+    private final long thresholdNanos;
+    private final JdbcClient jdbcClient;
+    private final TransactionTemplate explainTransaction;
+    // Only one EXPLAIN ANALYZE at a time, a slow database must not be loaded with a second copy of every slow query
+    private final Semaphore explainPermit = new Semaphore(1);
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock, oldest first
+    private final List<SlowQuery> slowQueries = new ArrayList<>();
+
+    public BookmarkSlowQueryLog(SlowQueryProperties slowQueryProperties, JdbcClient jdbcClient, PlatformTransactionManager transactionManager) {
+        this.slowQueryProperties = slowQueryProperties;
+        this.thresholdNanos = slowQueryProperties.threshold().toNanos();
+        this.jdbcClient = jdbcClient;
+        this.explainTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return slowQueryProperties.enabled() && BookmarkQueryObserver.OBSERVATION_NAME.equals(context.getName());
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        context.put(START_NANOS_KEY, System.nanoTime());
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        long durationNanos = System.nanoTime() - context.<Long>getRequired(START_NANOS_KEY);
+        if (durationNanos < thresholdNanos) {
+            return;
+        }
+        CapturedStatement statement = context.get(CapturedStatement.class);
+        var slowQuery = new SlowQuery(
+                Instant.now(),
+                valueOf(context.getLowCardinalityKeyValue(BookmarkQueryObserver.OPERATION)),
+                valueOf(context.getHighCardinalityKeyValue(BookmarkQueryObserver.QUERY_NAME)),
+                isNull(statement) ? null : statement.sql(),
+                isNull(statement) ? null : redact(statement.parameters()),
+                TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                valueOf(context.getHighCardinalityKeyValue(BookmarkQueryObserver.ROW_COUNT)),
+                null);
+        log.warn("Slow query {} took {}ms with parameters {}", slowQuery.queryName(), slowQuery.durationMillis(), slowQuery.parameters());
+        add(slowQuery);
+        if (nonNull(statement) && isSelect(statement.sql())
+                && ThreadLocalRandom.current().nextDouble() < slowQueryProperties.explainSampleRate()
+                && explainPermit.tryAcquire()) {
+            Thread.ofVirtual().name("bookmark-slow-query-explain").start(() -> {
+                try {
+                    replace(slowQuery, slowQuery.withPlan(explain(statement)));
+                } catch (Exception e) {
+                    log.warn("Could not explain slow query {}, due to: {}", slowQuery.queryName(), e.getMessage());
+                } finally {
+                    explainPermit.release();
+                }
+            });
+        }
+    }
+
+    List<SlowQuery> slowQueries() {
+        lock.lock();
+        try {
+            // Newest first
+            var newestFirst = new ArrayList<>(slowQueries);
+            Collections.reverse(newestFirst);
+            return newestFirst;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String explain(CapturedStatement statement) {
+        return explainTransaction.execute(status -> {
+            // ANALYZE runs the statement for real, whatever it did is thrown away
+            status.setRollbackOnly();
+            jdbcClient.sql("SET TRANSACTION READ ONLY").update();
+            return String.join("\n", jdbcClient.sql("EXPLAIN (ANALYZE, BUFFERS) " + statement.sql())
+                    .paramSource(statement.parameters())
+                    .query(String.class)
+                    .list());
+        });
+    }
+
+    private void add(SlowQuery slowQuery) {
+        lock.lock();
+        try {
+            if (slowQueries.size() >= slowQueryProperties.maxCaptured()) {
+                slowQueries.removeFirst();
+            }
+            slowQueries.add(slowQuery);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Dropped from the log in the meantime means nobody asked for the plan
+    private void replace(SlowQuery slowQuery, SlowQuery withPlan) {
+        lock.lock();
+        try {
+            int index = slowQueries.indexOf(slowQuery);
+            if (index >= 0) {
+                slowQueries.set(index, withPlan);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Numbers such as offset, limit and ids tell why a plan was slow, text and timestamps may be user data
+    private static Map<String, Object> redact(SqlParameterSource parameters) {
+        var redacted = new LinkedHashMap<String, Object>();
+        String[] names = parameters.getParameterNames();
+        if (isNull(names)) {
+            return redacted;
+        }
+        Arrays.stream(names).forEach(name -> redacted.put(name, switch (parameters.getValue(name)) {
+            case null -> null;
+            case Number number -> number;
+            case Boolean bool -> bool;
+            case Object[] array -> REDACTED + " (" + array.length + " values)";
+            default -> REDACTED;
+        }));
+        return redacted;
+    }
+
+    private static boolean isSelect(String sql) {
+        return sql.stripLeading().regionMatches(true, 0, "SELECT", 0, "SELECT".length());
+    }
+
+    private static String valueOf(KeyValue keyValue) {
+        return isNull(keyValue) ? null : keyValue.getValue();
+    }
+}
@@ -0,0 +1,176 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.BookmarkWriteBehindProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/// This class is the opt-in write-behind path of [BookmarkService#createBookmark(Bookmark)].
+/// Callers enqueue into a bounded queue and wait for their generated id, while a single writer thread drains the queue
+/// into group commits of up to `maxBatchSize` rows, waiting at most `maxWait` for a group to fill, so concurrent
+/// creates share one transaction commit instead of paying one each. A full queue rejects the write right away.
+/// The writer stops after the web server's graceful shutdown, so requests still waiting on a write are flushed first.
+
+@Component
+class BookmarkWriteBehind implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(BookmarkWriteBehind.class);
+    // Only wakes a waiting writer up to notice a stop
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final BookmarkRepository bookmarkRepository;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingWrite> queue;
+    private volatile boolean running;
+    private Thread writer;
+
+    public BookmarkWriteBehind(BookmarkRepository bookmarkRepository, BookmarkWriteBehindProperties bookmarkWriteBehindProperties) {
+        this.bookmarkRepository = bookmarkRepository;
+        this.enabled = bookmarkWriteBehindProperties.enabled();
+        this.maxBatchSize = bookmarkWriteBehindProperties.maxBatchSize();
+        this.maxWaitNanos = bookmarkWriteBehindProperties.maxWait().toNanos();
+        this.queue = enabled ? new ArrayBlockingQueue<>(bookmarkWriteBehindProperties.queueCapacity()) : null;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /// Saves the bookmark with the next group commit and returns its id, `null` when the url already exists.
+    /// Throws [RejectedExecutionException] when the queue is full or the writer is stopped.
+    Long save(Bookmark bookmark) {
+        try {
+            return submit(bookmark).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    CompletableFuture<Long> submit(Bookmark bookmark) {
+        if (!running) {
+            throw new RejectedExecutionException("Bookmark writer is not running");
+        }
+        var pendingWrite = new PendingWrite(bookmark, new CompletableFuture<>());
+        if (!queue.offer(pendingWrite)) {
+            throw new RejectedExecutionException("Too many pending bookmark writes");
+        }
+        // A stop may have raced the offer: the writer only drains what was queued before it exits
+        if (!running && queue.remove(pendingWrite)) {
+            throw new RejectedExecutionException("Bookmark writer is not running");
+        }
+        return pendingWrite.savedId();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofVirtual().name("bookmark-write-behind").start(this::drain);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Bookmark writer stopped, pending writes flushed");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stops later than the graceful shutdown, which waits for the requests blocked on a pending write
+    @Override
+    public int getPhase() {
+        return WebServerApplicationContext.GRACEFUL_SHUTDOWN_PHASE - 1;
+    }
+
+    private void drain() {
+        List<PendingWrite> group = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (isNull(first)) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (group.size() < maxBatchSize) {
+                    if (queue.drainTo(group, maxBatchSize - group.size()) > 0) {
+                        continue;
+                    }
+                    // A stop flushes the group right away instead of waiting for it to fill
+                    long remainingNanos = running ? deadline - System.nanoTime() : 0;
+                    if (remainingNanos <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(Math.min(remainingNanos, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                    if (nonNull(next)) {
+                        group.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Never leave the taken writes behind, flush them and keep draining until stopped
+                log.warn("Bookmark writer interrupted while collecting a group of {} writes", group.size());
+            }
+            if (!group.isEmpty()) {
+                write(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingWrite> group) {
+        try {
+            List<Long> savedIds = bookmarkRepository.saveAll(group.stream().map(PendingWrite::bookmark).toList());
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).savedId().complete(savedIds.get(i));
+            }
+        } catch (Exception e) {
+            // One bad row must not fail the whole group, each row is retried in its own commit
+            log.warn("Group commit of {} bookmarks failed, retrying one by one, due to: {}", group.size(), e.getMessage());
+            group.forEach(this::writeOne);
+        }
+    }
+
+    private void writeOne(PendingWrite pendingWrite) {
+        try {
+            pendingWrite.savedId().complete(bookmarkRepository.saveAll(List.of(pendingWrite.bookmark())).getFirst());
+        } catch (Exception e) {
+            pendingWrite.savedId().completeExceptionally(e);
+        }
+    }
+
+    // Each write has its own future, so two writes of the same bookmark are never equal
+    private record PendingWrite(Bookmark bookmark, CompletableFuture<Long> savedId) {
+    }
+}
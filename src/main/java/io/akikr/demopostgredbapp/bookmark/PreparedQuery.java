@@ -0,0 +1,43 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+/// This class is a fixed named-parameter statement, parsed once when it is created.
+/// [#sql()] has every `:name` replaced by `?`, and [#values(SqlParameterSource)] lines the values up with them, so
+/// `JdbcClient` binds by index and skips its per-call named-parameter substitution. Every call sends the same SQL text,
+/// which PgJDBC turns into a server-side prepared statement after `prepareThreshold` executions on a connection.
+/// Collection values are not expanded into `IN (?, ?, ...)` lists, pass arrays and use `= ANY(:name)` instead.
+
+final class PreparedQuery {
+
+    private final String namedSql;
+    private final ParsedSql parsedSql;
+    private final String sql;
+
+    private PreparedQuery(String namedSql) {
+        this.namedSql = namedSql;
+        this.parsedSql = NamedParameterUtils.parseSqlStatement(namedSql);
+        this.sql = NamedParameterUtils.substituteNamedParameters(parsedSql, null);
+    }
+
+    static PreparedQuery of(String namedSql) {
+        return new PreparedQuery(namedSql);
+    }
+
+    /// The statement as written, with its named parameters.
+    String namedSql() {
+        return namedSql;
+    }
+
+    /// The statement with positional `?` parameters, as sent to the database.
+    String sql() {
+        return sql;
+    }
+
+    /// Returns the values in parameter order, throws `InvalidDataAccessApiUsageException` when one is missing.
+    Object[] values(SqlParameterSource parameters) {
+        return NamedParameterUtils.buildValueArray(parsedSql, parameters, null);
+    }
+}
@@ -1,5 +1,7 @@
 package io.akikr.demopostgredbapp.config;
 
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.GenericFilter;
 import jakarta.servlet.ServletException;
@@ -9,70 +11,152 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.server.PathContainer;
 import org.springframework.stereotype.Component;
-import org.springframework.web.util.ContentCachingRequestWrapper;
-import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.Objects.isNull;
 
 @Component
 public class AppLoggingFilter extends GenericFilter {
 
     private static final Logger log = LoggerFactory.getLogger(AppLoggingFilter.class);
+    // Separate logger so the access log can be routed and levelled independently of the body logging
+    private static final Logger accessLog = LoggerFactory.getLogger("io.akikr.demopostgredbapp.access");
 
     private final AppLoggingProperties appLoggingProperties;
+    private final List<PathPattern> excludedPathPatterns;
+    private final List<Map.Entry<PathPattern, Double>> pathSampleRates;
 
     public AppLoggingFilter(AppLoggingProperties appLoggingProperties) {
         this.appLoggingProperties = appLoggingProperties;
+        this.excludedPathPatterns = appLoggingProperties.excludePaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        // Most specific pattern first, so '/v1/bookmarks/{id}' wins over '/v1/**'
+        this.pathSampleRates = isNull(appLoggingProperties.pathSampleRates()) ? List.of()
+                : appLoggingProperties.pathSampleRates().entrySet().stream()
+                .map(entry -> Map.entry(PathPatternParser.defaultInstance.parse(entry.getKey()), entry.getValue()))
+                .sorted(Comparator.comparing(Map.Entry::getKey, PathPattern.SPECIFICITY_COMPARATOR))
+                .toList();
     }
 
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
-        ContentCachingRequestWrapper requestWrapper = requestWrapper(servletRequest);
-        ContentCachingResponseWrapper responseWrapper = responseWrapper(servletResponse);
+        var request = (HttpServletRequest) servletRequest;
+        boolean logAccess = appLoggingProperties.accessLogEnabled() && accessLog.isInfoEnabled();
+        boolean logBodies = shouldLogBodies(request);
+        // Requests that will not be logged are passed through untouched, with no wrapping or copying of the body
+        if (!logAccess && !logBodies) {
+            filterChain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        // A zero limit only counts bytes, so access logging alone never captures a body
+        var requestWrapper = new BoundedTeeRequestWrapper(request,
+                (logBodies && appLoggingProperties.includeRequestBody()) ? appLoggingProperties.maxBodyLength() : 0);
+        var responseWrapper = new BoundedTeeResponseWrapper((HttpServletResponse) servletResponse,
+                (logBodies && appLoggingProperties.includeResponseBody()) ? appLoggingProperties.maxBodyLength() : 0);
 
         filterChain.doFilter(requestWrapper, responseWrapper);
 
-        if (appLoggingProperties.enabled()) {
-            logRequest(requestWrapper);
-            logResponse(responseWrapper);
+        // An async response is only complete once the async context completes
+        if (requestWrapper.isAsyncStarted()) {
+            requestWrapper.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    log(requestWrapper, responseWrapper, startNanos, logAccess, logBodies);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+            return;
         }
-        responseWrapper.copyBodyToResponse();
+        log(requestWrapper, responseWrapper, startNanos, logAccess, logBodies);
     }
 
-    private void logRequest(ContentCachingRequestWrapper request) {
-        var body = "[Not Logged]";
-        if (appLoggingProperties.includeRequestBody()) {
-            body = new String(request.getContentAsByteArray());
-            if (body.length() > appLoggingProperties.maxBodyLength()) {
-                body = body.substring(0, appLoggingProperties.maxBodyLength()) + "...[truncated]";
-            }
+    private void log(BoundedTeeRequestWrapper request, BoundedTeeResponseWrapper response, long startNanos,
+                     boolean logAccess, boolean logBodies) {
+        long durationNanos = System.nanoTime() - startNanos;
+        if (logAccess) {
+            // One event per request, the fields travel as key-value pairs for the structured encoders
+            accessLog.atInfo()
+                    .addKeyValue("http.request.method", request.getMethod())
+                    .addKeyValue("url.path", request.getRequestURI())
+                    .addKeyValue("http.response.status_code", response.getStatus())
+                    .addKeyValue("event.duration", durationNanos)
+                    .addKeyValue("http.request.body.bytes", request.body().total())
+                    .addKeyValue("http.response.body.bytes", response.body().total())
+                    .log("HTTP request completed");
+        }
+        if (logBodies) {
+            logRequest(request);
+            logResponse(response);
         }
-        log.debug("REQUEST BODY: {}", (body.isEmpty()) ? "[No-Body]" : body);
     }
 
-    private void logResponse(ContentCachingResponseWrapper response) {
-        var body = "[Not Logged]";
-        if (appLoggingProperties.includeRequestBody()){
-            body = new String(response.getContentAsByteArray());
-            if (body.length() > appLoggingProperties.maxBodyLength()) {
-                body = body.substring(0, appLoggingProperties.maxBodyLength()) + "...[truncated]";
-            }
+    private void logRequest(BoundedTeeRequestWrapper request) {
+        if (!appLoggingProperties.includeRequestBody()) {
+            log.debug("REQUEST BODY: [Not Logged]");
+            return;
         }
-        log.debug("RESPONSE BODY: {}", (body.isEmpty()) ? "[No-Body]" : body);
+        log.atDebug()
+                .addKeyValue("http.request.body.bytes", request.body().total())
+                .addKeyValue("truncated", request.body().isTruncated())
+                .log("REQUEST BODY: {}", bodyOf(request.body(), request.charset()));
     }
 
-    private ContentCachingRequestWrapper requestWrapper(ServletRequest servletRequest) {
-        if (servletRequest instanceof ContentCachingRequestWrapper requestWrapper) {
-            return requestWrapper;
+    private void logResponse(BoundedTeeResponseWrapper response) {
+        if (!appLoggingProperties.includeResponseBody()) {
+            log.debug("RESPONSE BODY: [Not Logged]");
+            return;
         }
-        return new ContentCachingRequestWrapper((HttpServletRequest) servletRequest, 0);
+        log.atDebug()
+                .addKeyValue("http.response.body.bytes", response.body().total())
+                .addKeyValue("truncated", response.body().isTruncated())
+                .log("RESPONSE BODY: {}", bodyOf(response.body(), response.charset()));
     }
 
-    private ContentCachingResponseWrapper responseWrapper(ServletResponse servletResponse) {
-        if (servletResponse instanceof ContentCachingResponseWrapper responseWrapper) {
-            return responseWrapper;
+    // Only the captured prefix is decoded, never the whole payload
+    private static String bodyOf(BoundedBodyBuffer body, Charset charset) {
+        if (body.total() == 0) {
+            return "[No-Body]";
+        }
+        return body.isTruncated() ? body.toString(charset) + "...[truncated]" : body.toString(charset);
+    }
+
+    private boolean shouldLogBodies(HttpServletRequest request) {
+        if (!appLoggingProperties.enabled() || !log.isDebugEnabled()) {
+            return false;
+        }
+        var path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        // Streaming endpoints must never have their bodies captured
+        if (excludedPathPatterns.stream().anyMatch(pattern -> pattern.matches(path))) {
+            return false;
         }
-        return new ContentCachingResponseWrapper((HttpServletResponse) servletResponse);
+        double sampleRate = pathSampleRates.stream()
+                .filter(entry -> entry.getKey().matches(path))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(appLoggingProperties.sampleRate());
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
     }
 }
@@ -4,10 +4,17 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "app.logging.filter")
 public record AppLoggingProperties(
         boolean enabled,
+        @DefaultValue("true") boolean accessLogEnabled,
         boolean includeRequestBody,
         boolean includeResponseBody,
-        int maxBodyLength) {
+        int maxBodyLength,
+        @DefaultValue({"/v1/bookmarks/export", "/v1/bookmarks/import"}) List<String> excludePaths,
+        @DefaultValue("1.0") double sampleRate,
+        Map<String, Double> pathSampleRates) {
 }
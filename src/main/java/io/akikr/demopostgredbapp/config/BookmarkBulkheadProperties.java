@@ -0,0 +1,18 @@
+package io.akikr.demopostgredbapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.bookmark.bulkhead")
+public record BookmarkBulkheadProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("5") int readConcurrency,
+        @DefaultValue("200") int readQueueCapacity,
+        @DefaultValue("3") int writeConcurrency,
+        @DefaultValue("100") int writeQueueCapacity,
+        @DefaultValue("2") int exportConcurrency,
+        @DefaultValue("4") int exportQueueCapacity,
+        @DefaultValue("500ms") Duration maxWait) {
+}
@@ -0,0 +1,14 @@
+package io.akikr.demopostgredbapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.bookmark.cache")
+public record BookmarkCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("60s") Duration ttl,
+        @DefaultValue("5s") Duration negativeTtl) {
+}
@@ -0,0 +1,22 @@
+package io.akikr.demopostgredbapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.bookmark.count")
+public record BookmarkCountProperties(
+        @DefaultValue("none") Mode mode,
+        @DefaultValue("30s") Duration refreshInterval) {
+
+    /// How the `total` of a paged listing is obtained, a request may pick another mode with `?total=`.
+    public enum Mode {
+        /// No `total` in the response.
+        NONE,
+        /// Planner row estimate from `pg_class.reltuples`, summed over the partitions.
+        ESTIMATE,
+        /// Exact `COUNT(*)`, cached for the refresh interval.
+        EXACT
+    }
+}
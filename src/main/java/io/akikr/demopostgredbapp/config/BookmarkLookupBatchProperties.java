@@ -0,0 +1,13 @@
+package io.akikr.demopostgredbapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.bookmark.lookup-batch")
+public record BookmarkLookupBatchProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("200us") Duration maxWait,
+        @DefaultValue("64") int maxBatchSize) {
+}
@@ -0,0 +1,57 @@
+package io.akikr.demopostgredbapp.config;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/// This class keeps at most `limit` leading bytes of a body that is streamed past it, while still counting the full size.
+/// Used by [BoundedTeeRequestWrapper] and [BoundedTeeResponseWrapper] so logging never holds a whole payload in memory.
+
+final class BoundedBodyBuffer {
+
+    private final int limit;
+    private byte[] bytes = new byte[0];
+    private int captured;
+    private long total;
+
+    BoundedBodyBuffer(int limit) {
+        this.limit = Math.max(limit, 0);
+    }
+
+    void write(int b) {
+        total++;
+        if (captured < limit) {
+            ensureCapacity(captured + 1);
+            bytes[captured++] = (byte) b;
+        }
+    }
+
+    void write(byte[] b, int off, int len) {
+        total += len;
+        int toCapture = Math.min(len, limit - captured);
+        if (toCapture > 0) {
+            ensureCapacity(captured + toCapture);
+            System.arraycopy(b, off, bytes, captured, toCapture);
+            captured += toCapture;
+        }
+    }
+
+    long total() {
+        return total;
+    }
+
+    boolean isTruncated() {
+        return total > captured;
+    }
+
+    /// Decodes only the captured prefix, a multibyte character cut at the limit is replaced rather than failing.
+    String toString(Charset charset) {
+        return new String(bytes, 0, captured, charset);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > bytes.length) {
+            // Grow geometrically, but never past the limit
+            bytes = Arrays.copyOf(bytes, Math.min(Math.max(required, Math.max(bytes.length * 2, 256)), limit));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.akikr.demopostgredbapp.config;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/// This class copies the first `maxBodyLength` bytes of the request body into a [BoundedBodyBuffer] as the
+/// application reads it. Unlike `ContentCachingRequestWrapper` nothing is read ahead and nothing beyond the limit is kept.
+
+final class BoundedTeeRequestWrapper extends HttpServletRequestWrapper {
+
+    private final BoundedBodyBuffer body;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    BoundedTeeRequestWrapper(HttpServletRequest request, int maxBodyLength) {
+        super(request);
+        this.body = new BoundedBodyBuffer(maxBodyLength);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (isNull(inputStream)) {
+            inputStream = new TeeInputStream(super.getInputStream(), body);
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (isNull(reader)) {
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), charset()));
+        }
+        return reader;
+    }
+
+    BoundedBodyBuffer body() {
+        return body;
+    }
+
+    Charset charset() {
+        String encoding = getCharacterEncoding();
+        return nonNull(encoding) ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+    }
+
+    private static final class TeeInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+        private final BoundedBodyBuffer body;
+
+        private TeeInputStream(ServletInputStream delegate, BoundedBodyBuffer body) {
+            this.delegate = delegate;
+            this.body = body;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b != -1) {
+                body.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = delegate.read(b, off, len);
+            if (read > 0) {
+                body.write(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package io.akikr.demopostgredbapp.config;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/// This class streams the response body straight to the client while copying its first `maxBodyLength` bytes into a
+/// [BoundedBodyBuffer]. Unlike `ContentCachingResponseWrapper` the body is never held back, so there is no second copy
+/// and no `copyBodyToResponse()` step.
+
+final class BoundedTeeResponseWrapper extends HttpServletResponseWrapper {
+
+    private final BoundedBodyBuffer body;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    BoundedTeeResponseWrapper(HttpServletResponse response, int maxBodyLength) {
+        super(response);
+        this.body = new BoundedBodyBuffer(maxBodyLength);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (isNull(outputStream)) {
+            outputStream = new TeeOutputStream(super.getOutputStream(), body);
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (isNull(writer)) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (nonNull(writer)) {
+            writer.flush();
+        }
+        super.flushBuffer();
+    }
+
+    BoundedBodyBuffer body() {
+        return body;
+    }
+
+    Charset charset() {
+        return Charset.forName(getCharacterEncoding());
+    }
+
+    private static final class TeeOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final BoundedBodyBuffer body;
+
+        private TeeOutputStream(ServletOutputStream delegate, BoundedBodyBuffer body) {
+            this.delegate = delegate;
+            this.body = body;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            body.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            body.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package io.akikr.demopostgredbapp.config;
+
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+/// The SQL and bind parameters of the last named-parameter statement run inside an observation, stored in the
+/// observation's context under this class as the key. Statements without parameters go straight to `JdbcTemplate`
+/// and are not captured.
+
+public record CapturedStatement(String sql, SqlParameterSource parameters) {
+}
@@ -0,0 +1,29 @@
+package io.akikr.demopostgredbapp.config;
+
+import static java.util.Objects.isNull;
+
+/// This class hands the time spent waiting for a pooled connection to whoever runs the statement on that connection.
+/// The pool is asked for a connection before a `@Transactional` method body runs, so the wait is recorded per thread
+/// by [ConnectionAcquireTrackingPostProcessor] and taken by the repository once its operation is done.
+
+public final class ConnectionAcquireTracker {
+
+    private static final ThreadLocal<Long> lastAcquireNanos = new ThreadLocal<>();
+
+    private ConnectionAcquireTracker() {
+    }
+
+    static void record(long acquireNanos) {
+        lastAcquireNanos.set(acquireNanos);
+    }
+
+    /// Returns and clears the last connection wait of the current thread, `-1` when no connection was acquired since.
+    public static long takeLastAcquireNanos() {
+        Long acquireNanos = lastAcquireNanos.get();
+        if (isNull(acquireNanos)) {
+            return -1;
+        }
+        lastAcquireNanos.remove();
+        return acquireNanos;
+    }
+}
@@ -0,0 +1,50 @@
+package io.akikr.demopostgredbapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/// This class wraps every Hikari pool so the wait for each connection is passed to [ConnectionAcquireTracker].
+/// Hikari's own `hikaricp.connections.acquire` timer stays as it is, it only knows the pool and not the operation.
+
+@Component
+class ConnectionAcquireTrackingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource hikariDataSource) {
+            return new AcquireTrackingDataSource(hikariDataSource);
+        }
+        return bean;
+    }
+
+    // Closeable, so the inferred destroy method still shuts the pool down
+    private static final class AcquireTrackingDataSource extends DelegatingDataSource implements Closeable {
+
+        private final HikariDataSource hikariDataSource;
+
+        private AcquireTrackingDataSource(HikariDataSource hikariDataSource) {
+            super(hikariDataSource);
+            this.hikariDataSource = hikariDataSource;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            long startNanos = System.nanoTime();
+            Connection connection = super.getConnection();
+            ConnectionAcquireTracker.record(System.nanoTime() - startNanos);
+            return connection;
+        }
+
+        @Override
+        public void close() {
+            hikariDataSource.close();
+        }
+    }
+}
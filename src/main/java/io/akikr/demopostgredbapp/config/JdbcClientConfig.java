@@ -0,0 +1,18 @@
+package io.akikr.demopostgredbapp.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@Configuration(proxyBeanMethods = false)
+class JdbcClientConfig {
+
+    // Replaces the auto-configured template, the auto-configured JdbcClient is built on top of this one
+    @Bean
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate(JdbcTemplate jdbcTemplate, ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new StatementCapturingJdbcTemplate(jdbcTemplate, observationRegistry);
+    }
+}
@@ -0,0 +1,125 @@
+package io.akikr.demopostgredbapp.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/// This class remembers, for the read-your-writes window of [ReplicaRoutingDataSource], which clients committed a
+/// write and which bookmarks were written. The routing sends a recent writer's read-only transactions to the primary,
+/// the repository uses the same answers for the reads that leave the request thread or go through its shared cache.
+/// A client is the `X-Client-Id` request header, or the remote address without it. Without a replica nothing is
+/// remembered, every read comes from the primary anyway.
+
+@Component
+public final class ReadYourWrites {
+
+    public static final ReadYourWrites NONE = new ReadYourWrites(
+            new ReplicaDataSourceProperties(false, null, null, null, null, 0, Duration.ZERO));
+
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+    private static final long MAX_RECENT_WRITERS = 100_000;
+    private static final long MAX_RECENTLY_WRITTEN = 100_000;
+
+    private final Cache<String, Boolean> recentWriters;
+    private final Cache<Long, Boolean> recentlyWritten;
+    private final long windowNanos;
+    // The last time every bookmark counted as written, e.g. by an import
+    private final AtomicLong allWrittenAtNanos = new AtomicLong();
+
+    public ReadYourWrites(ReplicaDataSourceProperties replicaDataSourceProperties) {
+        if (!replicaDataSourceProperties.enabled()) {
+            this.recentWriters = null;
+            this.recentlyWritten = null;
+            this.windowNanos = 0;
+            return;
+        }
+        Duration window = replicaDataSourceProperties.readYourWritesWindow();
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(MAX_RECENT_WRITERS)
+                .expireAfterWrite(window)
+                .build();
+        this.recentlyWritten = Caffeine.newBuilder()
+                .maximumSize(MAX_RECENTLY_WRITTEN)
+                .expireAfterWrite(window)
+                .build();
+        this.windowNanos = window.toNanos();
+        this.allWrittenAtNanos.set(System.nanoTime() - windowNanos);
+    }
+
+    /// Whether the client of the current request committed a write within the window, so its reads must come from
+    /// the primary. Always `false` outside of a request thread.
+    public boolean isCallerReadingOwnWrites() {
+        return isRecentWriter(clientId());
+    }
+
+    /// Whether the bookmark was written within the window, so a replica may not have its latest version yet.
+    public boolean isRecentlyWritten(Long id) {
+        if (isNull(recentlyWritten)) {
+            return false;
+        }
+        return nonNull(recentlyWritten.getIfPresent(id))
+                || System.nanoTime() - allWrittenAtNanos.get() < windowNanos;
+    }
+
+    /// Marks the bookmark as written, again once the writing transaction completes, as the window starts at commit.
+    public void recordWrite(Long id) {
+        if (isNull(recentlyWritten)) {
+            return;
+        }
+        recentlyWritten.put(id, Boolean.TRUE);
+        afterCompletion(() -> recentlyWritten.put(id, Boolean.TRUE));
+    }
+
+    /// Marks every bookmark as written, for writes that do not know their ids.
+    public void recordWriteOfAll() {
+        if (isNull(recentlyWritten)) {
+            return;
+        }
+        allWrittenAtNanos.set(System.nanoTime());
+        afterCompletion(() -> allWrittenAtNanos.set(System.nanoTime()));
+    }
+
+    void recordWriter(String clientId) {
+        if (isNull(recentWriters) || isNull(clientId)) {
+            return;
+        }
+        recentWriters.put(clientId, Boolean.TRUE);
+    }
+
+    boolean isRecentWriter(String clientId) {
+        if (isNull(recentWriters) || isNull(clientId)) {
+            return false;
+        }
+        return nonNull(recentWriters.getIfPresent(clientId));
+    }
+
+    // Outside of a request thread, e.g. a streamed response body, there is no client to stick to
+    static String clientId() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        String clientId = attributes.getRequest().getHeader(CLIENT_ID_HEADER);
+        return (isNull(clientId) || clientId.isBlank()) ? attributes.getRequest().getRemoteAddr() : clientId;
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+}
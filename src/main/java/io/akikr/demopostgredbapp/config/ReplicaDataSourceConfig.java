@@ -0,0 +1,72 @@
+package io.akikr.demopostgredbapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.boot.jdbc.autoconfigure.JdbcConnectionDetails;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/// This configuration replaces the auto-configured `DataSource` with a primary and a replica Hikari pool behind a
+/// [ReplicaRoutingDataSource]. The primary pool keeps its `spring.datasource.*` settings, including the connection
+/// details of Docker Compose or Testcontainers service connections, the replica pool is set up by
+/// [ReplicaDataSourceProperties] and shares the primary's PgJDBC `data-source-properties`. `JdbcClient` and the
+/// transaction manager use the routing `DataSource`. The pools are injected as plain `DataSource`s, [ConnectionAcquireTrackingPostProcessor] wraps them.
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnBooleanProperty("app.datasource.replica.enabled")
+class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties,
+                                       ObjectProvider<JdbcConnectionDetails> jdbcConnectionDetails) {
+        DataSourceBuilder<HikariDataSource> builder = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class);
+        jdbcConnectionDetails.ifAvailable(connectionDetails -> builder
+                .url(connectionDetails.getJdbcUrl())
+                .username(connectionDetails.getUsername())
+                .password(connectionDetails.getPassword())
+                .driverClassName(connectionDetails.getDriverClassName()));
+        return builder.build();
+    }
+
+    @Bean
+    HikariDataSource replicaDataSource(ReplicaDataSourceProperties replicaDataSourceProperties, Environment environment) {
+        HikariDataSource replicaDataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(replicaDataSourceProperties.url())
+                .username(replicaDataSourceProperties.username())
+                .password(replicaDataSourceProperties.password())
+                .build();
+        replicaDataSource.setPoolName(replicaDataSourceProperties.poolName());
+        replicaDataSource.setMaximumPoolSize(replicaDataSourceProperties.maximumPoolSize());
+        // A write routed here by mistake fails on the connection, not only on a hot-standby server
+        replicaDataSource.setReadOnly(true);
+        // Same driver settings as the primary, e.g. prepareThreshold=0 behind a transaction-pooling PgBouncer
+        Binder.get(environment)
+                .bind("spring.datasource.hikari.data-source-properties", Bindable.mapOf(String.class, String.class))
+                .ifBound(properties -> properties.forEach(replicaDataSource::addDataSourceProperty));
+        return replicaDataSource;
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                          @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                          ReadYourWrites readYourWrites) {
+        var routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, readYourWrites);
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,53 @@
+package io.akikr.demopostgredbapp.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static java.util.Objects.nonNull;
+
+/// This class routes read-only transactions to the replica pool and everything else to the primary pool.
+/// A client that committed a write reads from the primary for the window of [ReadYourWrites] afterward, so it never
+/// misses its own write on a lagging replica.
+/// The read-only flag is only known once the transaction has begun, so this must sit behind a
+/// [org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy] that fetches the connection on first use.
+
+final class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String CLIENT_ID_HEADER = ReadYourWrites.CLIENT_ID_HEADER;
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final ReadYourWrites readYourWrites;
+
+    ReplicaRoutingDataSource(DataSource primaryDataSource, DataSource replicaDataSource, ReadYourWrites readYourWrites) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primaryDataSource, Target.REPLICA, replicaDataSource));
+        setDefaultTargetDataSource(primaryDataSource);
+        this.readYourWrites = readYourWrites;
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String clientId = ReadYourWrites.clientId();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (nonNull(clientId) && TransactionSynchronizationManager.isSynchronizationActive()) {
+                // The window starts at commit, when the write becomes visible to the replica's replay
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        readYourWrites.recordWriter(clientId);
+                    }
+                });
+            }
+            return Target.PRIMARY;
+        }
+        if (readYourWrites.isRecentWriter(clientId)) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+}
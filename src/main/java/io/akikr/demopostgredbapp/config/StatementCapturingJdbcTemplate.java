@@ -0,0 +1,38 @@
+package io.akikr.demopostgredbapp.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.function.Consumer;
+
+import static java.util.Objects.nonNull;
+
+/// This class is the `NamedParameterJdbcTemplate` behind `JdbcClient`. Every named-parameter statement passes through
+/// [#getPreparedStatementCreator], where it is attached to the current observation as a [CapturedStatement].
+
+final class StatementCapturingJdbcTemplate extends NamedParameterJdbcTemplate {
+
+    // Looked up on first use: the registry's handlers may themselves depend on JdbcClient
+    private final ObjectProvider<ObservationRegistry> observationRegistry;
+
+    StatementCapturingJdbcTemplate(JdbcTemplate jdbcTemplate, ObjectProvider<ObservationRegistry> observationRegistry) {
+        super(jdbcTemplate);
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    protected PreparedStatementCreator getPreparedStatementCreator(String sql, SqlParameterSource paramSource,
+                                                                   Consumer<PreparedStatementCreatorFactory> customizer) {
+        Observation observation = observationRegistry.getObject().getCurrentObservation();
+        if (nonNull(observation)) {
+            observation.getContext().put(CapturedStatement.class, new CapturedStatement(sql, paramSource));
+        }
+        return super.getPreparedStatementCreator(sql, paramSource, customizer);
+    }
+}
@@ -1,16 +1,194 @@
+-- Canonical form of a url, so near-duplicates share one: lower-case scheme and host, no default port, no trailing
+-- slash on the path. Anything that is not 'scheme://authority...' is kept as it is.
+CREATE OR REPLACE FUNCTION bookmark_canonical_url(url text) RETURNS text AS
+$$
+SELECT CASE
+           WHEN m.parts IS NULL THEN url
+           ELSE lower(m.parts[1]) || '://' ||
+                CASE lower(m.parts[1])
+                    WHEN 'http' THEN regexp_replace(lower(m.parts[2]), ':80$', '')
+                    WHEN 'https' THEN regexp_replace(lower(m.parts[2]), ':443$', '')
+                    ELSE lower(m.parts[2])
+                    END ||
+                regexp_replace(m.parts[3], '/+$', '') ||
+                m.parts[4]
+           END
+FROM regexp_match(url, '^([A-Za-z][A-Za-z0-9+.-]*)://([^/?#]*)([^?#]*)(.*)$') AS m(parts)
+$$ LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE;
+
+-- SHA-256 of the canonical url: 32 bytes in the unique index, however long the url is
+CREATE OR REPLACE FUNCTION bookmark_url_hash(url text) RETURNS bytea AS
+$$
+SELECT sha256(textsend(bookmark_canonical_url(url)))
+$$ LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE;
+
+-- Range-partitioned by month of created_at: recent pages only touch the newest partitions, and vacuum and index
+-- maintenance work one partition at a time. Every unique index must contain the partition key, hence the primary key.
 CREATE TABLE IF NOT EXISTS bookmarks
 (
-    id         bigserial primary key,
+    id         bigserial,
     title      varchar   not null,
     url        varchar   not null,
-    created_at timestamp
-);
+    created_at timestamp not null,
+    version    bigint    not null default 1,
+    title_tsv  tsvector generated always as (to_tsvector('english', title)) stored,
+    url_hash   bytea    generated always as (bookmark_url_hash(url)) stored,
+    primary key (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Everything older than the first monthly partition, e.g. imported history. It ends with the current month, like
+-- the one V5 attaches, so both layouts get their first monthly partition for next month
+CREATE TABLE IF NOT EXISTS bookmarks_history PARTITION OF bookmarks
+    FOR VALUES FROM (MINVALUE) TO (date_trunc('month', LOCALTIMESTAMP) + INTERVAL '1 month');
 
 -- Index to fetch bookmarks order-by created_at: If multiple rows share same created_at, add id as tiebreaker
 CREATE INDEX idx_bookmarks_created_id ON bookmarks (created_at DESC, id DESC);
 
--- Duplicate bookmark urls are not allowed
-CREATE UNIQUE INDEX uq_bookmarks_url ON bookmarks (url);
+-- Title search: stemmed lexemes kept in a generated column, so the GIN index never has to re-parse the title
+CREATE INDEX idx_bookmarks_title_tsv ON bookmarks USING gin (title_tsv);
+
+-- URL search: trigram GIN index, serves both prefix ('abc%') and substring ('%abc%') ILIKE matches
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_bookmarks_url_trgm ON bookmarks USING gin (url gin_trgm_ops);
+
+-- Duplicate bookmark urls are not allowed, compared by the hash of their canonical form. A unique index on a
+-- partitioned table would only be unique per partition, so the hashes are claimed in this unpartitioned table.
+CREATE TABLE IF NOT EXISTS bookmark_urls
+(
+    url_hash bytea primary key,
+    id       bigint not null
+);
+
+-- Claims the url hash of every written row, a hash claimed by another bookmark fails the statement with 23505.
+-- A hash the statement has already claimed for the same id (INSERT ... ON CONFLICT on bookmark_urls) is kept.
+CREATE OR REPLACE FUNCTION claim_bookmark_url() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP = 'DELETE' OR (TG_OP = 'UPDATE' AND NEW.url_hash <> OLD.url_hash) THEN
+        DELETE FROM bookmark_urls WHERE url_hash = OLD.url_hash AND id = OLD.id;
+    END IF;
+    IF TG_OP = 'INSERT' OR (TG_OP = 'UPDATE' AND NEW.url_hash <> OLD.url_hash) THEN
+        INSERT INTO bookmark_urls (url_hash, id) VALUES (NEW.url_hash, NEW.id) ON CONFLICT (url_hash) DO NOTHING;
+        IF NOT FOUND AND NOT EXISTS (SELECT 1 FROM bookmark_urls WHERE url_hash = NEW.url_hash AND id = NEW.id) THEN
+            RAISE unique_violation USING MESSAGE = format('Bookmark url already exists: %s', NEW.url),
+                CONSTRAINT = 'bookmark_urls_pkey';
+        END IF;
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER trg_bookmarks_claim_url
+    AFTER INSERT OR UPDATE OF url OR DELETE
+    ON bookmarks
+    FOR EACH ROW
+EXECUTE FUNCTION claim_bookmark_url();
+
+CREATE OR REPLACE FUNCTION release_bookmark_urls() RETURNS trigger AS
+$$
+BEGIN
+    TRUNCATE bookmark_urls;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER trg_bookmarks_release_urls
+    AFTER TRUNCATE
+    ON bookmarks
+    FOR EACH STATEMENT
+EXECUTE FUNCTION release_bookmark_urls();
+
+-- Table-level change counter, it is the ETag of the list pages: a lookup of 16 rows instead of hashing the page.
+-- It is spread over the rows, summed on read, so concurrent writers rarely wait on the same row lock.
+CREATE TABLE IF NOT EXISTS bookmarks_changes
+(
+    id           smallint primary key CONSTRAINT bookmarks_changes_id_check CHECK (id BETWEEN 1 AND 16),
+    change_count bigint not null
+);
+
+INSERT INTO bookmarks_changes (id, change_count)
+SELECT shard, 0 FROM generate_series(1, 16) AS shard
+ON CONFLICT (id) DO NOTHING;
+
+-- Statement-level, so a batch insert, a COPY import or a TRUNCATE bumps the counter once. Each backend bumps its own
+-- row, and a statement that wrote no row, e.g. an all-duplicate batch insert, leaves the counter as it was.
+-- The transition table only exists for INSERT, UPDATE and DELETE, a TRUNCATE always counts.
+-- No ';' after the final END, script splitters would otherwise cut the function body there
+CREATE OR REPLACE FUNCTION bump_bookmarks_change_count() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP <> 'TRUNCATE' THEN
+        IF NOT EXISTS (SELECT 1 FROM changed_rows) THEN
+            RETURN NULL;
+        END IF;
+    END IF;
+    UPDATE bookmarks_changes SET change_count = change_count + 1 WHERE id = 1 + pg_backend_pid() % 16;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+-- A trigger with a transition table may only fire on one event, hence one per event
+CREATE OR REPLACE TRIGGER trg_bookmarks_change_count_insert
+    AFTER INSERT
+    ON bookmarks
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION bump_bookmarks_change_count();
+
+CREATE OR REPLACE TRIGGER trg_bookmarks_change_count_update
+    AFTER UPDATE
+    ON bookmarks
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION bump_bookmarks_change_count();
+
+CREATE OR REPLACE TRIGGER trg_bookmarks_change_count_delete
+    AFTER DELETE
+    ON bookmarks
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION bump_bookmarks_change_count();
+
+CREATE OR REPLACE TRIGGER trg_bookmarks_change_count_truncate
+    AFTER TRUNCATE
+    ON bookmarks
+    FOR EACH STATEMENT
+EXECUTE FUNCTION bump_bookmarks_change_count();
+
+-- Creates the monthly partitions after the newest one (or after bookmarks_history) up to the month of 'until_at',
+-- returns how many were created. Months are never skipped, so a row older than the newest partition always has one.
+-- The lock timeout keeps a partition creation from queueing every query behind a long-running one.
+CREATE OR REPLACE FUNCTION ensure_bookmarks_partitions(until_at timestamp) RETURNS integer AS
+$$
+DECLARE
+    newest      text;
+    lower_bound timestamp;
+    created     integer := 0;
+BEGIN
+    SELECT max(p.relid::text) INTO newest
+    FROM pg_partition_tree('bookmarks') AS p
+    WHERE p.isleaf AND p.relid::text ~ '^bookmarks_p[0-9]{6}$';
+    IF newest IS NULL THEN
+        SELECT substring(pg_get_expr(c.relpartbound, c.oid) FROM 'TO \(''([^'']+)''\)')::timestamp INTO lower_bound
+        FROM pg_class c
+        WHERE c.oid = 'bookmarks_history'::regclass;
+    ELSE
+        lower_bound := to_date(substring(newest FROM 12), 'YYYYMM') + INTERVAL '1 month';
+    END IF;
+    WHILE lower_bound <= until_at LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF bookmarks FOR VALUES FROM (%L) TO (%L)',
+                       'bookmarks_p' || to_char(lower_bound, 'YYYYMM'),
+                       to_char(lower_bound, 'YYYY-MM-DD'),
+                       to_char(lower_bound + INTERVAL '1 month', 'YYYY-MM-DD'));
+        created := created + 1;
+        lower_bound := lower_bound + INTERVAL '1 month';
+    END LOOP;
+    RETURN created;
+END
+$$ LANGUAGE plpgsql SET lock_timeout = '5s';
+
+SELECT ensure_bookmarks_partitions(LOCALTIMESTAMP + INTERVAL '3 months');
 
 
 INSERT INTO bookmarks(title, url, created_at)
@@ -0,0 +1,27 @@
+-- Per-row version, bumped by every UPDATE of a bookmark, it is the strong ETag of GET /v1/bookmarks/{id}
+ALTER TABLE bookmarks ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 1;
+
+-- Table-level change counter, it is the ETag of the list pages: a single-row lookup instead of hashing the page
+CREATE TABLE IF NOT EXISTS bookmarks_changes
+(
+    id           smallint primary key CHECK (id = 1),
+    change_count bigint not null
+);
+
+INSERT INTO bookmarks_changes (id, change_count) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
+
+-- Statement-level, so a batch insert, a COPY import or a TRUNCATE bumps the counter once
+-- No ';' after the final END, script splitters would otherwise cut the function body there
+CREATE OR REPLACE FUNCTION bump_bookmarks_change_count() RETURNS trigger AS
+$$
+BEGIN
+    UPDATE bookmarks_changes SET change_count = change_count + 1 WHERE id = 1;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE TRIGGER trg_bookmarks_change_count
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON bookmarks
+    FOR EACH STATEMENT
+EXECUTE FUNCTION bump_bookmarks_change_count();
@@ -0,0 +1,10 @@
+-- Title search: stemmed lexemes kept in a generated column, so the GIN index never has to re-parse the title
+ALTER TABLE bookmarks
+    ADD COLUMN IF NOT EXISTS title_tsv tsvector GENERATED ALWAYS AS (to_tsvector('english', title)) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_bookmarks_title_tsv ON bookmarks USING gin (title_tsv);
+
+-- URL search: trigram GIN index, serves both prefix ('abc%') and substring ('%abc%') ILIKE matches
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_bookmarks_url_trgm ON bookmarks USING gin (url gin_trgm_ops);
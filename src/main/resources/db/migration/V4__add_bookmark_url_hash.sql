@@ -0,0 +1,39 @@
+-- Canonical form of a url, so near-duplicates share one: lower-case scheme and host, no default port, no trailing
+-- slash on the path. Anything that is not 'scheme://authority...' is kept as it is.
+-- No ';' inside the function bodies, script splitters would otherwise cut them there
+CREATE OR REPLACE FUNCTION bookmark_canonical_url(url text) RETURNS text AS
+$$
+SELECT CASE
+           WHEN m.parts IS NULL THEN url
+           ELSE lower(m.parts[1]) || '://' ||
+                CASE lower(m.parts[1])
+                    WHEN 'http' THEN regexp_replace(lower(m.parts[2]), ':80$', '')
+                    WHEN 'https' THEN regexp_replace(lower(m.parts[2]), ':443$', '')
+                    ELSE lower(m.parts[2])
+                    END ||
+                regexp_replace(m.parts[3], '/+$', '') ||
+                m.parts[4]
+           END
+FROM regexp_match(url, '^([A-Za-z][A-Za-z0-9+.-]*)://([^/?#]*)([^?#]*)(.*)$') AS m(parts)
+$$ LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE;
+
+-- SHA-256 of the canonical url: 32 bytes in the unique index, however long the url is
+CREATE OR REPLACE FUNCTION bookmark_url_hash(url text) RETURNS bytea AS
+$$
+SELECT sha256(textsend(bookmark_canonical_url(url)))
+$$ LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE;
+
+-- Rewrites the table once to fill the hash of every existing row
+ALTER TABLE bookmarks
+    ADD COLUMN IF NOT EXISTS url_hash bytea GENERATED ALWAYS AS (bookmark_url_hash(url)) STORED;
+
+-- Existing near-duplicates collapse into the oldest bookmark, the unique index could not be built otherwise
+DELETE FROM bookmarks b
+    USING bookmarks older
+WHERE older.url_hash = b.url_hash
+  AND older.id < b.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_bookmarks_url_hash ON bookmarks (url_hash);
+
+-- The full-length url B-tree is replaced by the hash one, url searches are served by idx_bookmarks_url_trgm
+DROP INDEX IF EXISTS uq_bookmarks_url;
@@ -0,0 +1,176 @@
+-- Moves the V1..V4 'bookmarks' heap under a partitioned 'bookmarks': the old table becomes the partition
+-- 'bookmarks_history' (everything before next month), so no row is copied. Reads go on throughout. Writes stop once,
+-- for the copy of the url hashes into bookmark_urls in step 2, which reads the whole table under a SHARE lock. Every
+-- other step that scans or builds runs before the swap and lets writes go on, the swap itself only touches the catalog.
+-- Run it statement by statement (psql in autocommit mode): CONCURRENTLY cannot run inside a transaction block.
+
+-- 1. created_at becomes part of the primary key, so it cannot be NULL. Rows without one sort as the oldest.
+UPDATE bookmarks SET created_at = 'epoch' WHERE created_at IS NULL;
+
+-- A validated CHECK lets SET NOT NULL skip its full-table scan under an exclusive lock
+ALTER TABLE bookmarks ADD CONSTRAINT bookmarks_created_at_not_null CHECK (created_at IS NOT NULL) NOT VALID;
+ALTER TABLE bookmarks VALIDATE CONSTRAINT bookmarks_created_at_not_null;
+ALTER TABLE bookmarks ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE bookmarks DROP CONSTRAINT bookmarks_created_at_not_null;
+
+-- 2. The url hashes move to their own table, claimed by a trigger from now on.
+-- Duplicate bookmark urls are not allowed, compared by the hash of their canonical form. A unique index on a
+-- partitioned table would only be unique per partition, so the hashes are claimed in this unpartitioned table.
+CREATE TABLE IF NOT EXISTS bookmark_urls
+(
+    url_hash bytea primary key,
+    id       bigint not null
+);
+
+-- Claims the url hash of every written row, a hash claimed by another bookmark fails the statement with 23505.
+-- A hash the statement has already claimed for the same id (INSERT ... ON CONFLICT on bookmark_urls) is kept.
+CREATE OR REPLACE FUNCTION claim_bookmark_url() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP = 'DELETE' OR (TG_OP = 'UPDATE' AND NEW.url_hash <> OLD.url_hash) THEN
+        DELETE FROM bookmark_urls WHERE url_hash = OLD.url_hash AND id = OLD.id;
+    END IF;
+    IF TG_OP = 'INSERT' OR (TG_OP = 'UPDATE' AND NEW.url_hash <> OLD.url_hash) THEN
+        INSERT INTO bookmark_urls (url_hash, id) VALUES (NEW.url_hash, NEW.id) ON CONFLICT (url_hash) DO NOTHING;
+        IF NOT FOUND AND NOT EXISTS (SELECT 1 FROM bookmark_urls WHERE url_hash = NEW.url_hash AND id = NEW.id) THEN
+            RAISE unique_violation USING MESSAGE = format('Bookmark url already exists: %s', NEW.url),
+                CONSTRAINT = 'bookmark_urls_pkey';
+        END IF;
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+-- Writes to bookmarks wait for the whole copy, it takes as long as a full scan of the table. The lock keeps a url
+-- from being written between the copy and the trigger, where it would be claimed by neither.
+BEGIN;
+LOCK TABLE bookmarks IN SHARE MODE;
+INSERT INTO bookmark_urls (url_hash, id) SELECT url_hash, id FROM bookmarks;
+CREATE TRIGGER trg_bookmarks_claim_url
+    AFTER INSERT OR UPDATE OF url OR DELETE
+    ON bookmarks
+    FOR EACH ROW
+EXECUTE FUNCTION claim_bookmark_url();
+COMMIT;
+
+-- 3. The indexes and the constraint the partitioned table will adopt instead of building its own
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS bookmarks_history_pkey ON bookmarks (id, created_at);
+
+-- bookmarks_history ends at the start of next month, not now, on purpose: the rows written while this migration runs
+-- still pass the CHECK, so the attach needs no scan. Every insert lands in bookmarks_history until the month rolls
+-- over, the monthly partitions only take rows from next month on.
+DO
+$$
+BEGIN
+    EXECUTE format('ALTER TABLE bookmarks ADD CONSTRAINT bookmarks_history_range CHECK (created_at < %L) NOT VALID',
+                   to_char(date_trunc('month', LOCALTIMESTAMP) + INTERVAL '1 month', 'YYYY-MM-DD'));
+END
+$$;
+ALTER TABLE bookmarks VALIDATE CONSTRAINT bookmarks_history_range;
+
+-- 4. The swap, catalog changes only
+BEGIN;
+ALTER TABLE bookmarks RENAME TO bookmarks_history;
+ALTER TABLE bookmarks_history DROP CONSTRAINT bookmarks_pkey;
+ALTER TABLE bookmarks_history ADD CONSTRAINT bookmarks_history_pkey PRIMARY KEY USING INDEX bookmarks_history_pkey;
+DROP TRIGGER trg_bookmarks_change_count ON bookmarks_history;
+DROP TRIGGER trg_bookmarks_claim_url ON bookmarks_history;
+-- Index names are schema-wide, the partitioned table takes the original ones
+ALTER INDEX idx_bookmarks_created_id RENAME TO bookmarks_history_created_id_idx;
+ALTER INDEX idx_bookmarks_title_tsv RENAME TO bookmarks_history_title_tsv_idx;
+ALTER INDEX idx_bookmarks_url_trgm RENAME TO bookmarks_history_url_trgm_idx;
+
+-- Range-partitioned by month of created_at: recent pages only touch the newest partitions, and vacuum and index
+-- maintenance work one partition at a time. Every unique index must contain the partition key, hence the primary key.
+CREATE TABLE bookmarks
+(
+    id         bigint    not null default nextval('bookmarks_id_seq'),
+    title      varchar   not null,
+    url        varchar   not null,
+    created_at timestamp not null,
+    version    bigint    not null default 1,
+    title_tsv  tsvector generated always as (to_tsvector('english', title)) stored,
+    url_hash   bytea    generated always as (bookmark_url_hash(url)) stored,
+    primary key (id, created_at)
+) PARTITION BY RANGE (created_at);
+ALTER SEQUENCE bookmarks_id_seq OWNED BY bookmarks.id;
+
+-- The range matches the validated CHECK, so the partition is not scanned
+DO
+$$
+BEGIN
+    EXECUTE format('ALTER TABLE bookmarks ATTACH PARTITION bookmarks_history FOR VALUES FROM (MINVALUE) TO (%L)',
+                   to_char(date_trunc('month', LOCALTIMESTAMP) + INTERVAL '1 month', 'YYYY-MM-DD'));
+END
+$$;
+ALTER TABLE bookmarks_history DROP CONSTRAINT bookmarks_history_range;
+
+-- Matched to the existing indexes of bookmarks_history by definition, nothing is rebuilt
+CREATE INDEX idx_bookmarks_created_id ON bookmarks (created_at DESC, id DESC);
+CREATE INDEX idx_bookmarks_title_tsv ON bookmarks USING gin (title_tsv);
+CREATE INDEX idx_bookmarks_url_trgm ON bookmarks USING gin (url gin_trgm_ops);
+
+CREATE TRIGGER trg_bookmarks_claim_url
+    AFTER INSERT OR UPDATE OF url OR DELETE
+    ON bookmarks
+    FOR EACH ROW
+EXECUTE FUNCTION claim_bookmark_url();
+
+CREATE OR REPLACE FUNCTION release_bookmark_urls() RETURNS trigger AS
+$$
+BEGIN
+    TRUNCATE bookmark_urls;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_bookmarks_release_urls
+    AFTER TRUNCATE
+    ON bookmarks
+    FOR EACH STATEMENT
+EXECUTE FUNCTION release_bookmark_urls();
+
+CREATE TRIGGER trg_bookmarks_change_count
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON bookmarks
+    FOR EACH STATEMENT
+EXECUTE FUNCTION bump_bookmarks_change_count();
+COMMIT;
+
+-- 5. The unique url index of V4 is replaced by bookmark_urls
+DROP INDEX CONCURRENTLY IF EXISTS uq_bookmarks_url_hash;
+
+-- 6. The monthly partitions from next month on, then kept ahead by the app (app.bookmark.partitions.*)
+-- Creates the monthly partitions after the newest one (or after bookmarks_history) up to the month of 'until_at',
+-- returns how many were created. Months are never skipped, so a row older than the newest partition always has one.
+-- The lock timeout keeps a partition creation from queueing every query behind a long-running one.
+CREATE OR REPLACE FUNCTION ensure_bookmarks_partitions(until_at timestamp) RETURNS integer AS
+$$
+DECLARE
+    newest      text;
+    lower_bound timestamp;
+    created     integer := 0;
+BEGIN
+    SELECT max(p.relid::text) INTO newest
+    FROM pg_partition_tree('bookmarks') AS p
+    WHERE p.isleaf AND p.relid::text ~ '^bookmarks_p[0-9]{6}$';
+    IF newest IS NULL THEN
+        SELECT substring(pg_get_expr(c.relpartbound, c.oid) FROM 'TO \(''([^'']+)''\)')::timestamp INTO lower_bound
+        FROM pg_class c
+        WHERE c.oid = 'bookmarks_history'::regclass;
+    ELSE
+        lower_bound := to_date(substring(newest FROM 12), 'YYYYMM') + INTERVAL '1 month';
+    END IF;
+    WHILE lower_bound <= until_at LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF bookmarks FOR VALUES FROM (%L) TO (%L)',
+                       'bookmarks_p' || to_char(lower_bound, 'YYYYMM'),
+                       to_char(lower_bound, 'YYYY-MM-DD'),
+                       to_char(lower_bound + INTERVAL '1 month', 'YYYY-MM-DD'));
+        created := created + 1;
+        lower_bound := lower_bound + INTERVAL '1 month';
+    END LOOP;
+    RETURN created;
+END
+$$ LANGUAGE plpgsql SET lock_timeout = '5s';
+
+SELECT ensure_bookmarks_partitions(LOCALTIMESTAMP + INTERVAL '3 months');
@@ -0,0 +1,128 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.PostgreTestContainer;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(classes = ReactiveBookmarkApp.class, properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+class ReactiveBookmarkControllerIntegrationTest extends PostgreTestContainer {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        // Same data as the @Sql script of BookmarkControllerIntegrationTest, which needs a DataSource
+        new ResourceDatabasePopulator(new ClassPathResource("test-data.sql"))
+                .populate(connectionFactory)
+                .block();
+        webTestClient = WebTestClient.bindToApplicationContext(applicationContext).build();
+    }
+
+    @Test
+    void testGetAllBookmarks() {
+        webTestClient.get().uri("/v1/bookmarks")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data").isArray();
+
+        webTestClient.get().uri("/v1/bookmarks?page=0&size=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.length()").isEqualTo(6);
+
+        webTestClient.get().uri("/v1/bookmarks?page=-1")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("pageNumber must be greater than 0");
+    }
+
+    @Test
+    void testGetBookmarkById() {
+        long id = 1L;
+        webTestClient.get().uri("/v1/bookmarks/" + id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .expectBody()
+                .jsonPath("$.data").exists()
+                .jsonPath("$.data.id").isEqualTo(id);
+
+        webTestClient.get().uri("/v1/bookmarks/" + Long.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testCreateBookmark() {
+        webTestClient.post().uri("/v1/bookmarks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {
+                          "title":"Test",
+                          "url":"https://test.com"
+                        }
+                        """)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isNumber()
+                .jsonPath("$.message").isEqualTo("Bookmark created successfully");
+
+        webTestClient.post().uri("/v1/bookmarks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {
+                          "title":"Duplicate",
+                          "url":"https://sivalabs.in/spring-boot-testing"
+                        }
+                        """)
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void testUpdateBookmark() {
+        webTestClient.put().uri("/v1/bookmarks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {
+                          "id":"1",
+                          "title":"Test3",
+                          "url":"https://test3.com"
+                        }
+                        """)
+                .exchange()
+                .expectStatus().is2xxSuccessful();
+    }
+
+    @Test
+    void testDeleteBookmark() {
+        long id = 1L; // Assuming this ID exists in the test data
+        webTestClient.delete().uri("/v1/bookmarks/" + id)
+                .exchange()
+                .expectStatus().is2xxSuccessful();
+
+        webTestClient.delete().uri("/v1/bookmarks/" + id)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
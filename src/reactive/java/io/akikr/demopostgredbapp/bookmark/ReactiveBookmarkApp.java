@@ -0,0 +1,40 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.util.Arrays;
+
+/// This class starts the non-blocking variant of the bookmark API: WebFlux on Netty and R2DBC on the same schema,
+/// built with the `reactive` Maven profile, so both execution models can be benchmarked side by side on one host.
+/// It is not a `@SpringBootApplication` and scans nothing, only the reactive beans are imported, and it is skipped
+/// when the blocking [io.akikr.demopostgredbapp.DemoPostgreDbApp] finds it on its scan path.
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+// The JDBC stack stays on the classpath for the blocking app, without a DataSource its auto-configurations back off
+@EnableAutoConfiguration(excludeName = "org.springframework.boot.jdbc.autoconfigure.DataSourceAutoConfiguration")
+@Import({
+        BookmarkResponseSerializer.class,
+        ReactiveBookmarkController.class,
+        ReactiveBookmarkRepository.class,
+        ReactiveBookmarkService.class})
+public class ReactiveBookmarkApp {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveBookmarkApp.class);
+
+    public static void main(String[] args) {
+        log.info("Starting reactive application with args:[{}]", Arrays.toString(args));
+        var application = new SpringApplication(ReactiveBookmarkApp.class);
+        application.setWebApplicationType(WebApplicationType.REACTIVE);
+        application.setAdditionalProfiles("reactive");
+        application.run(args);
+        log.info("Completed execution of main method");
+    }
+}
@@ -0,0 +1,63 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import reactor.core.publisher.Mono;
+
+/// This class serves the offset-paged read, the lookup by id and the single-bookmark writes of [BookmarkController]
+/// on WebFlux, under the same paths and with the same JSON bodies.
+
+@Controller
+@ResponseBody
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping(path = "/v1", produces = MediaType.APPLICATION_JSON_VALUE)
+class ReactiveBookmarkController {
+
+    private final ReactiveBookmarkService bookmarkService;
+
+    public ReactiveBookmarkController(ReactiveBookmarkService bookmarkService) {
+        this.bookmarkService = bookmarkService;
+    }
+
+    @GetMapping(path = "/bookmarks")
+    public Mono<ResponseEntity<BookmarkResponse>> getAllBookmarks(
+            @RequestParam(value = "page", required = false, defaultValue = "0") Integer pageNumber,
+            @RequestParam(value = "size", required = false, defaultValue = "10") Integer pageSize,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return bookmarkService.getAllBookmarks(pageNumber, pageSize, ifNoneMatch);
+    }
+
+    @GetMapping(path = "/bookmarks/{id}")
+    public Mono<ResponseEntity<BookmarkResponse>> getBookmarkById(@PathVariable(name = "id") Long id,
+                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return bookmarkService.getBookmarkById(id, ifNoneMatch);
+    }
+
+    @PostMapping(path = "/bookmarks")
+    public Mono<ResponseEntity<BookmarkResponse>> createBookmark(@RequestBody Bookmark bookmark) {
+        return bookmarkService.createBookmark(bookmark);
+    }
+
+    @PutMapping(path = "/bookmarks")
+    public Mono<ResponseEntity<BookmarkResponse>> updateBookmark(@RequestBody Bookmark bookmark) {
+        return bookmarkService.updateBookmark(bookmark);
+    }
+
+    @DeleteMapping(path = "/bookmarks/{id}")
+    public Mono<ResponseEntity<BookmarkResponse>> deleteBookmarkById(@PathVariable(name = "id") Long id) {
+        return bookmarkService.deleteBookmarkById(id);
+    }
+}
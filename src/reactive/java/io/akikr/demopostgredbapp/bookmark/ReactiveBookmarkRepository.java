@@ -0,0 +1,132 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/// This class is the R2DBC counterpart of [BookmarkRepository]: the same statements on the same schema,
+/// run through a non-blocking [DatabaseClient]. It has no cache and no lookup batching, so a benchmark against the
+/// blocking repository should run that one with `app.bookmark.cache.enabled=false` and
+/// `app.bookmark.lookup-batch.enabled=false`.
+
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveBookmarkRepository {
+
+    private static final String SELECT_BOOKMARKS_QUERY = """
+            SELECT id, title, url, created_at, version FROM bookmarks
+            ORDER BY created_at DESC, id DESC
+            OFFSET :offset LIMIT :limit
+            """;
+    private static final String SELECT_BOOKMARK_BY_ID_QUERY = """
+            SELECT id, title, url, created_at, version FROM bookmarks WHERE id = :id
+            """;
+    private static final String INSERT_BOOKMARK_QUERY = """
+            INSERT INTO bookmarks (title, url, created_at) VALUES (:title, :url, :createdAt)
+            RETURNING id
+            """;
+    private static final String UPDATE_BOOKMARK_QUERY = """
+            UPDATE bookmarks SET title = :title, url = :url, version = version + 1 WHERE id = :id
+            """;
+    private static final String DELETE_BOOKMARK_BY_ID_QUERY = """
+            DELETE FROM bookmarks WHERE id = :id
+            """;
+
+    // By column position, like the row mapper of BookmarkRepository
+    private static final Function<Readable, Bookmark> BOOKMARK_ROW_MAPPER = row -> new Bookmark(
+            row.get(0, Long.class),
+            row.get(1, String.class),
+            row.get(2, String.class),
+            row.get(3, LocalDateTime.class),
+            row.get(4, Long.class));
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator snapshotTransaction;
+
+    public ReactiveBookmarkRepository(DatabaseClient databaseClient, ReactiveTransactionManager transactionManager) {
+        this.databaseClient = databaseClient;
+        var snapshotDefinition = new DefaultTransactionDefinition();
+        snapshotDefinition.setReadOnly(true);
+        snapshotDefinition.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction = TransactionalOperator.create(transactionManager, snapshotDefinition);
+    }
+
+    /// Runs the reads in one read-only `REPEATABLE READ` transaction, see [BookmarkRepository#readSnapshot].
+    public <T> Mono<T> readSnapshot(Mono<T> reads) {
+        return snapshotTransaction.transactional(reads);
+    }
+
+    @Transactional(readOnly = true)
+    public Mono<List<Bookmark>> findAll(Integer pageNumber, Integer pageSize) {
+        return databaseClient.sql(SELECT_BOOKMARKS_QUERY)
+                .bind("offset", pageNumber * pageSize)
+                .bind("limit", pageSize)
+                .map(BOOKMARK_ROW_MAPPER)
+                .all()
+                .collectList();
+    }
+
+    @Transactional(readOnly = true)
+    public Mono<Bookmark> findById(Long id) {
+        return databaseClient.sql(SELECT_BOOKMARK_BY_ID_QUERY)
+                .bind("id", id)
+                .map(BOOKMARK_ROW_MAPPER)
+                .one();
+    }
+
+    @Transactional(rollbackFor =  Exception.class)
+    public Mono<Long> save(Bookmark bookmark) {
+        return databaseClient.sql(INSERT_BOOKMARK_QUERY)
+                .bind("title", bookmark.title())
+                .bind("url", bookmark.url())
+                .bind("createdAt", LocalDateTime.now())
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    @Transactional(rollbackFor =  Exception.class)
+    public Mono<Boolean> update(Bookmark bookmark) {
+        return databaseClient.sql(UPDATE_BOOKMARK_QUERY)
+                .bind("id", bookmark.id())
+                .bind("title", bookmark.title())
+                .bind("url", bookmark.url())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(updatedCount -> updatedCount == 0
+                        ? Mono.error(new IllegalStateException("Bookmark NOT found with id: " + bookmark.id()))
+                        : Mono.just(Boolean.TRUE));
+    }
+
+    @Transactional(rollbackFor =  Exception.class)
+    public Mono<Boolean> deleteById(Long id) {
+        return databaseClient.sql(DELETE_BOOKMARK_BY_ID_QUERY)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.error(new IllegalStateException("Bookmark NOT found with id: " + id))
+                        : Mono.just(Boolean.TRUE));
+    }
+
+    /// Returns the table-level change counter behind the list ETag, see [BookmarkRepository#changeCount()].
+    public Mono<Long> changeCount() {
+        final String SELECT_CHANGE_COUNT_QUERY = """
+                SELECT sum(change_count)::bigint FROM bookmarks_changes
+                """;
+
+        return databaseClient.sql(SELECT_CHANGE_COUNT_QUERY)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+}
@@ -0,0 +1,181 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import static java.util.Objects.isNull;
+
+/// This class answers the requests of [ReactiveBookmarkController] with the statuses and bodies of [BookmarkServiceImpl],
+/// so the same client and load test run against either variant. The checks that need no connection run before the
+/// first query is subscribed to.
+
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveBookmarkService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveBookmarkService.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final ReactiveBookmarkRepository bookmarkRepository;
+
+    public ReactiveBookmarkService(ReactiveBookmarkRepository bookmarkRepository) {
+        this.bookmarkRepository = bookmarkRepository;
+    }
+
+    public Mono<ResponseEntity<BookmarkResponse>> getAllBookmarks(Integer pageNumber, Integer pageSize, String ifNoneMatch) {
+        log.info("Fetching all bookmarks for pageNumber[{}] and pageSize[{}]", pageNumber, pageSize);
+        try {
+            // Checking for valid pageNumber or pageSize
+            isPageNumberOrPageSizeValid(pageNumber, pageSize);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid request for all bookmarks for pageNumber[{}] and pageSize[{}], due to: {}", pageNumber, pageSize, e.getMessage());
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage())));
+        }
+        // The change counter is read before the rows and in their snapshot, like in BookmarkServiceImpl
+        return bookmarkRepository.readSnapshot(bookmarkRepository.changeCount()
+                        .map(BookmarkETags::ofChangeCount)
+                        .flatMap(eTag -> BookmarkETags.matches(ifNoneMatch, eTag)
+                                ? Mono.just(notModified(eTag))
+                                : bookmarkRepository.findAll(pageNumber, pageSize).map(bookmarks -> {
+                                    if (bookmarks.isEmpty()) {
+                                        log.warn("No bookmarks found for pageNumber[{}] and pageSize[{}]", pageNumber, pageSize);
+                                        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                                .body((BookmarkResponse) new BookmarkResponse.Message("Bookmarks not found"));
+                                    }
+                                    return ResponseEntity.ok()
+                                            .eTag(eTag)
+                                            .body((BookmarkResponse) new BookmarkResponse.Page(bookmarks));
+                                })))
+                .onErrorResume(e -> {
+                    log.error("Error fetching all bookmarks for pageNumber[{}] and pageSize[{}], due to: {}", pageNumber, pageSize, e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(new BookmarkResponse.Failure("An error occurred while fetching the bookmark")));
+                });
+    }
+
+    public Mono<ResponseEntity<BookmarkResponse>> getBookmarkById(Long id, String ifNoneMatch) {
+        log.info("Fetching bookmark by ID: {}", id);
+        return bookmarkRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Bookmark NOT found with id: " + id)))
+                .map(bookmark -> {
+                    String eTag = BookmarkETags.of(bookmark);
+                    if (BookmarkETags.matches(ifNoneMatch, eTag)) {
+                        return notModified(eTag);
+                    }
+                    return ResponseEntity.ok()
+                            .eTag(eTag)
+                            .body((BookmarkResponse) new BookmarkResponse.Item(bookmark));
+                })
+                .onErrorResume(IllegalStateException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new BookmarkResponse.Failure(e.getMessage()))))
+                .onErrorResume(e -> {
+                    log.error("Error fetching bookmark by ID: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(new BookmarkResponse.Failure("An error occurred while fetching the bookmark")));
+                });
+    }
+
+    public Mono<ResponseEntity<BookmarkResponse>> createBookmark(Bookmark bookmark) {
+        log.info("Creating bookmark with title: {}", bookmark.title());
+        try {
+            // Checking for a valid bookmark before any connection is taken
+            BookmarkValidator.validate(bookmark);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid bookmark with title: {}, due to: {}", bookmark.title(), e.getMessage());
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage())));
+        }
+        return bookmarkRepository.save(bookmark)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Failed to create bookmark")))
+                .map(savedId -> {
+                    log.info("Bookmark created successfully with ID: {}", savedId);
+                    return ResponseEntity.status(HttpStatus.CREATED)
+                            .body((BookmarkResponse) new BookmarkResponse.Created(savedId, "Bookmark created successfully"));
+                })
+                .onErrorResume(DuplicateKeyException.class, e -> {
+                    log.warn("Bookmark already exists with URL: {}", bookmark.url());
+                    return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT)
+                            .body(new BookmarkResponse.Failure("Bookmark already exists with URL: " + bookmark.url())));
+                })
+                .onErrorResume(e -> {
+                    log.error("Error creating bookmark: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(new BookmarkResponse.Failure(e.getMessage())));
+                });
+    }
+
+    public Mono<ResponseEntity<BookmarkResponse>> updateBookmark(Bookmark bookmark) {
+        log.info("Updating bookmark with ID: {}", bookmark.id());
+        try {
+            // Checking for a valid bookmark before any connection is taken
+            isIdPresent(bookmark.id());
+            BookmarkValidator.validate(bookmark);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid bookmark with ID: {}, due to: {}", bookmark.id(), e.getMessage());
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new BookmarkResponse.Failure(e.getMessage())));
+        }
+        return bookmarkRepository.update(bookmark)
+                .map(isUpdated -> {
+                    log.info("Bookmark with ID: {} updated successfully", bookmark.id());
+                    return ResponseEntity.status(HttpStatus.NO_CONTENT)
+                            .body((BookmarkResponse) new BookmarkResponse.Message("Bookmark updated successfully"));
+                })
+                .onErrorResume(DuplicateKeyException.class, e -> {
+                    log.warn("Bookmark already exists with URL: {}", bookmark.url());
+                    return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT)
+                            .body(new BookmarkResponse.Failure("Bookmark already exists with URL: " + bookmark.url())));
+                })
+                .onErrorResume(e -> {
+                    log.error("{}", e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(new BookmarkResponse.Failure("Bookmark not found with ID: " + bookmark.id())));
+                });
+    }
+
+    public Mono<ResponseEntity<BookmarkResponse>> deleteBookmarkById(Long id) {
+        log.info("Deleting bookmark with ID: {}", id);
+        return bookmarkRepository.deleteById(id)
+                .map(isDeleted -> {
+                    log.info("Bookmark with ID: {} deleted successfully", id);
+                    return ResponseEntity.status(HttpStatus.NO_CONTENT)
+                            .body((BookmarkResponse) new BookmarkResponse.Message("Bookmark deleted successfully"));
+                })
+                .onErrorResume(e -> {
+                    log.error("{}", e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(new BookmarkResponse.Failure("Bookmark not found with ID: " + id)));
+                });
+    }
+
+    private static ResponseEntity<BookmarkResponse> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .build();
+    }
+
+    private static void isIdPresent(Long id) throws IllegalArgumentException {
+        if (isNull(id)) {
+            throw new IllegalArgumentException("id cannot be NULL");
+        }
+    }
+
+    private static void isPageNumberOrPageSizeValid(Integer pageNumber, Integer pageSize) throws IllegalArgumentException {
+        if (isNull(pageNumber) || pageNumber < 0) {
+            throw new IllegalArgumentException("pageNumber must be greater than 0");
+        }
+        if (isNull(pageSize) || pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be greater than 0");
+        }
+        if (pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must not exceed " + MAX_PAGE_SIZE);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package io.akikr.demopostgredbapp;
+
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.WaitAllStrategy;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+
+public abstract class PostgreReplicaTestContainer extends PostgreTestContainer {
+
+    // A second, independent server standing in for the replica: the tests check where queries are routed, not replication
+    static final PostgreSQLContainer<?> replicaSQLContainer = new PostgreSQLContainer<>(DockerImageName.parse("postgres:17.5-alpine"))
+            .withDatabaseName("replica_db")
+            .withInitScript("init.sql")
+            .withReuse(true);
+
+    static  {
+        var waitStrategy = new WaitAllStrategy().withStartupTimeout(Duration.of(30, SECONDS));
+        replicaSQLContainer.waitingFor(waitStrategy).start();
+        System.out.println("PostgreSQLContainer replica started");
+        Runtime.getRuntime().addShutdownHook(new Thread(replicaSQLContainer::close));
+    }
+
+    protected static String primaryDatabaseName() {
+        return postgreSQLContainer.getDatabaseName();
+    }
+
+    protected static String replicaDatabaseName() {
+        return replicaSQLContainer.getDatabaseName();
+    }
+
+    /// A client straight to the replica, to set up rows the primary does not have.
+    protected static JdbcClient replicaJdbcClient() {
+        return JdbcClient.create(new DriverManagerDataSource(replicaSQLContainer.getJdbcUrl(),
+                replicaSQLContainer.getUsername(), replicaSQLContainer.getPassword()));
+    }
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("app.datasource.replica.enabled", () -> "true");
+        registry.add("app.datasource.replica.url", replicaSQLContainer::getJdbcUrl);
+        registry.add("app.datasource.replica.username", replicaSQLContainer::getUsername);
+        registry.add("app.datasource.replica.password", replicaSQLContainer::getPassword);
+    }
+}
@@ -0,0 +1,149 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.BookmarkBulkheadProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookmarkBulkheadsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void shouldAdmitUpToTheConcurrencyWithoutWaiting() {
+        // Arrange
+        var bookmarkBulkheads = bulkheads(2, 10, 1, 10, Duration.ofSeconds(10));
+
+        // Act
+        try (var first = bookmarkBulkheads.read(); var second = bookmarkBulkheads.read()) {
+
+            // Assert
+            assertThat(gauge(BookmarkBulkheads.ACTIVE_GAUGE_NAME, "read")).isEqualTo(2);
+            assertThat(gauge(BookmarkBulkheads.QUEUE_DEPTH_GAUGE_NAME, "read")).isZero();
+        }
+        assertThat(gauge(BookmarkBulkheads.ACTIVE_GAUGE_NAME, "read")).isZero();
+        assertThat(waitCount("read", "admitted")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRejectWhenNoPermitFreesUpWithinMaxWait() {
+        // Arrange
+        var bookmarkBulkheads = bulkheads(1, 10, 1, 10, Duration.ofMillis(50));
+
+        try (var held = bookmarkBulkheads.read()) {
+            // Act & Assert
+            assertThatThrownBy(bookmarkBulkheads::read)
+                    .isInstanceOf(BookmarkBulkheads.BulkheadFullException.class)
+                    .hasMessage("No bookmark read capacity within 50ms");
+        }
+        assertThat(waitCount("read", "timeout")).isEqualTo(1);
+        assertThat(gauge(BookmarkBulkheads.QUEUE_DEPTH_GAUGE_NAME, "read")).isZero();
+    }
+
+    @Test
+    void shouldRejectRightAwayWhenTheWaitQueueIsFull() throws Exception {
+        // Arrange
+        var bookmarkBulkheads = bulkheads(1, 10, 1, 1, Duration.ofSeconds(10));
+        var held = bookmarkBulkheads.write();
+        var waiter = CompletableFuture.runAsync(() -> bookmarkBulkheads.write().close(),
+                task -> Thread.ofVirtual().start(task));
+        awaitQueueDepth("write", 1);
+
+        // Act & Assert
+        // The 10s max wait is never spent, the only queue slot is taken
+        assertThatThrownBy(bookmarkBulkheads::write)
+                .isInstanceOf(BookmarkBulkheads.BulkheadFullException.class)
+                .hasMessage("Too many waiting bookmark writes");
+        assertThat(waitCount("write", "queue_full")).isEqualTo(1);
+
+        // The queued write is admitted once the permit is released
+        held.close();
+        waiter.get(5, TimeUnit.SECONDS);
+        assertThat(waitCount("write", "admitted")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldKeepReadsAdmittedWhileWritesAreSaturated() {
+        // Arrange
+        var bookmarkBulkheads = bulkheads(1, 10, 1, 0, Duration.ofMillis(10));
+
+        try (var held = bookmarkBulkheads.write()) {
+            // Act & Assert
+            assertThatThrownBy(bookmarkBulkheads::write)
+                    .isInstanceOf(BookmarkBulkheads.BulkheadFullException.class);
+            try (var read = bookmarkBulkheads.read()) {
+                assertThat(gauge(BookmarkBulkheads.ACTIVE_GAUGE_NAME, "read")).isEqualTo(1);
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepReadsAdmittedWhileExportsAreSaturated() {
+        // Arrange
+        var bookmarkBulkheads = new BookmarkBulkheads(
+                new BookmarkBulkheadProperties(true, 1, 0, 1, 0, 1, 0, Duration.ofMillis(10)), meterRegistry);
+
+        try (var held = bookmarkBulkheads.export()) {
+            // Act & Assert
+            assertThatThrownBy(bookmarkBulkheads::export)
+                    .isInstanceOf(BookmarkBulkheads.BulkheadFullException.class)
+                    .hasMessage("Too many waiting bookmark exports");
+            try (var read = bookmarkBulkheads.read()) {
+                assertThat(gauge(BookmarkBulkheads.ACTIVE_GAUGE_NAME, "read")).isEqualTo(1);
+                assertThat(gauge(BookmarkBulkheads.ACTIVE_GAUGE_NAME, "export")).isEqualTo(1);
+            }
+        }
+    }
+
+    @Test
+    void shouldAdmitEverythingWhenDisabled() {
+        // Arrange
+        var bookmarkBulkheads = new BookmarkBulkheads(
+                new BookmarkBulkheadProperties(false, 1, 0, 1, 0, 1, 0, Duration.ZERO), meterRegistry);
+
+        // Act
+        try (var first = bookmarkBulkheads.write(); var second = bookmarkBulkheads.write()) {
+
+            // Assert
+            assertThat(meterRegistry.find(BookmarkBulkheads.WAIT_TIMER_NAME).timer()).isNull();
+        }
+    }
+
+    private BookmarkBulkheads bulkheads(int readConcurrency, int readQueueCapacity, int writeConcurrency, int writeQueueCapacity,
+                                        Duration maxWait) {
+        return new BookmarkBulkheads(new BookmarkBulkheadProperties(true, readConcurrency, readQueueCapacity,
+                writeConcurrency, writeQueueCapacity, 1, 0, maxWait), meterRegistry);
+    }
+
+    private void awaitQueueDepth(String bulkhead, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gauge(BookmarkBulkheads.QUEUE_DEPTH_GAUGE_NAME, bulkhead) < depth) {
+            assertThat(System.nanoTime()).as("queue depth of %s", bulkhead).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private double gauge(String name, String bulkhead) {
+        return meterRegistry.get(name).tag("bulkhead", bulkhead).gauge().value();
+    }
+
+    private long waitCount(String bulkhead, String outcome) {
+        return meterRegistry.get(BookmarkBulkheads.WAIT_TIMER_NAME)
+                .tag("bulkhead", bulkhead)
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+}
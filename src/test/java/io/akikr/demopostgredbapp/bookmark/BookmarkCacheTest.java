@@ -0,0 +1,89 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.BookmarkCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookmarkCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BookmarkCache bookmarkCache;
+    private AtomicInteger loads;
+    private Function<Long, Optional<Bookmark>> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bookmarkCache = new BookmarkCache(
+                new BookmarkCacheProperties(true, 100, Duration.ofMinutes(1), Duration.ofSeconds(5)), meterRegistry);
+        loads = new AtomicInteger();
+        loader = id -> {
+            loads.incrementAndGet();
+            return id > 100 ? Optional.empty() : Optional.of(new Bookmark(id, "Title", "https://url", LocalDateTime.now()));
+        };
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        // Act
+        var first = bookmarkCache.get(1L, loader);
+        var second = bookmarkCache.get(1L, loader);
+
+        // Assert
+        assertThat(first).isPresent();
+        assertThat(second).isEqualTo(first);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", BookmarkCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", BookmarkCache.CACHE_NAME).tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCacheNegativeLookups() {
+        // Act
+        var first = bookmarkCache.get(999L, loader);
+        var second = bookmarkCache.get(999L, loader);
+
+        // Assert
+        assertThat(first).isEmpty();
+        assertThat(second).isEmpty();
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReloadAfterEviction() {
+        // Arrange
+        bookmarkCache.get(1L, loader);
+
+        // Act
+        bookmarkCache.evict(1L);
+        bookmarkCache.get(1L, loader);
+
+        // Assert
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldBypassCacheWhenDisabled() {
+        // Arrange
+        var disabledCache = new BookmarkCache(
+                new BookmarkCacheProperties(false, 100, Duration.ofMinutes(1), Duration.ofSeconds(5)), meterRegistry);
+
+        // Act
+        disabledCache.get(1L, loader);
+        disabledCache.get(1L, loader);
+
+        // Assert
+        assertThat(loads.get()).isEqualTo(2);
+    }
+}
@@ -5,15 +5,21 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -37,6 +43,42 @@ class BookmarkControllerIntegrationTest extends PostgreTestContainer {
                 .andExpect(jsonPath("$.data").isArray());
     }
 
+    @Test
+    void testGetBookmarksByCursor() throws Exception {
+        mockMvc.perform(get("/v1/bookmarks")
+                        .param("cursor", "")
+                        .param("size", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(4))
+                .andExpect(jsonPath("$.nextCursor").isString());
+
+        mockMvc.perform(get("/v1/bookmarks")
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").isString());
+
+        // 'size + 1' would overflow, the size is bounded first
+        mockMvc.perform(get("/v1/bookmarks")
+                        .param("cursor", "")
+                        .param("size", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("pageSize must not exceed 1000"));
+    }
+
+    @Test
+    void testExportBookmarks() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/v1/bookmarks/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(result -> assertThat(result.getResponse().getContentAsString().lines())
+                        .hasSize(6)
+                        .allSatisfy(line -> assertThat(line).startsWith("{\"id\":")));
+    }
+
     @Test
     void testGetBookmarkById() throws Exception {
         long id = 1L;
@@ -61,6 +103,82 @@ class BookmarkControllerIntegrationTest extends PostgreTestContainer {
                 .andExpect(jsonPath("$.message").isString());
     }
 
+    @Test
+    void testCreateBookmarksInBatch() throws Exception {
+        mockMvc.perform(post("/v1/bookmarks/batch")
+                        .contentType("application/json")
+                        .content("""
+                        [
+                          {"title":"Batch-1", "url":"https://batch-1.com"},
+                          {"title":"Duplicate", "url":"https://sivalabs.in/spring-boot-testing"},
+                          {"title":"", "url":"https://batch-blank.com"}
+                        ]
+                        """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.data.length()").value(3))
+                .andExpect(jsonPath("$.data[0].id").isNumber())
+                .andExpect(jsonPath("$.data[1].error").isString())
+                .andExpect(jsonPath("$.data[2].error").isString());
+    }
+
+    @Test
+    void testImportBookmarksFromCsv() throws Exception {
+        mockMvc.perform(post("/v1/bookmarks/import")
+                        .contentType("text/csv")
+                        .content("""
+                        title,url,created_at
+                        Import-1,https://import-1.com,
+                        "Import, quoted",https://import-2.com,2025-01-01T10:00:00
+                        Duplicate,https://sivalabs.in/spring-boot-testing,
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.rowsRead").value(3))
+                .andExpect(jsonPath("$.data.rowsWritten").value(2))
+                .andExpect(jsonPath("$.data.rowsRejected").value(0));
+    }
+
+    @Test
+    void testImportBookmarksRejectsInvalidLines() throws Exception {
+        mockMvc.perform(post("/v1/bookmarks/import")
+                        .contentType("text/csv")
+                        .content("""
+                        title,url,created_at
+                        Import-6,https://import-6.com,
+                        Script,javascript:alert(1),
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.rowsRead").value(2))
+                .andExpect(jsonPath("$.data.rowsWritten").value(1))
+                .andExpect(jsonPath("$.data.rowsRejected").value(1));
+    }
+
+    @Test
+    void testImportBookmarksFromNdjsonWithUpdate() throws Exception {
+        mockMvc.perform(post("/v1/bookmarks/import")
+                        .param("onConflict", "update")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("""
+                        {"title":"Import-3", "url":"https://import-3.com"}
+                        {"title":"Renamed", "url":"https://sivalabs.in/spring-boot-testing"}
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.rowsRead").value(2))
+                .andExpect(jsonPath("$.data.rowsWritten").value(2));
+    }
+
+    @Test
+    void testImportBookmarksDatedPastThePartitionHorizon() throws Exception {
+        mockMvc.perform(post("/v1/bookmarks/import")
+                        .contentType("text/csv")
+                        .content("""
+                        title,url,created_at
+                        Import-4,https://import-4.com,
+                        Far ahead,https://import-5.com,2999-01-01T10:00:00
+                        """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Bookmark 2 of the import is dated more than 3 months ahead"));
+    }
+
     @Test
     void testUpdateBookmark() throws Exception {
         mockMvc.perform(put("/v1/bookmarks")
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,11 +13,13 @@ import org.springframework.test.web.servlet.assertj.MockMvcTester;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -34,11 +37,11 @@ class BookmarkControllerWithMockMvcTesterTest {
     @DisplayName("GET /v1/bookmarks should return list of data")
     void getAllBookmarks() {
         //Mock
-        Map<String, Object> data = Map.of("data", List.of(
+        var data = new BookmarkResponse.Page(List.of(
                 new Bookmark(101L, "Demo-Title", "https://demo-url", LocalDateTime.now()),
                 new Bookmark(102L, "Test-Title", "https://test-url", LocalDateTime.now())
         ));
-        when(bookmarkService.getAllBookmarks(anyInt(), anyInt())).thenReturn(ResponseEntity.ok().body(data));
+        when(bookmarkService.getAllBookmarks(anyInt(), anyInt(), any(), any())).thenReturn(ResponseEntity.ok().body(data));
 
         //Arrange & Act
         var result = mockMvcTester.get().uri("/v1/bookmarks").exchange();
@@ -65,17 +68,71 @@ class BookmarkControllerWithMockMvcTesterTest {
                 .asArray()
                 .isNotEmpty();
 
-        verify(bookmarkService, times(2)).getAllBookmarks(anyInt(), anyInt());
+        verify(bookmarkService, times(2)).getAllBookmarks(anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /v1/bookmarks?cursor= should return keyset page with nextCursor")
+    void getBookmarksByCursor() {
+        //Mock
+        var data = new BookmarkResponse.Page(List.of(
+                new Bookmark(102L, "Test-Title", "https://test-url", LocalDateTime.now())
+        ), "next-cursor");
+        when(bookmarkService.getBookmarksByCursor(anyString(), anyInt(), any())).thenReturn(ResponseEntity.ok().body(data));
+
+        //Arrange & Act
+        var result = mockMvcTester.get().uri("/v1/bookmarks")
+                .param("cursor", "")
+                .param("size", "1")
+                .exchange();
+
+        //Assertion
+        result.assertThat().hasStatusOk();
+        result.assertThat().bodyJson()
+                .extractingPath("$.nextCursor")
+                .isEqualTo("next-cursor");
+
+        //Verify
+        verify(bookmarkService, times(1)).getBookmarksByCursor("", 1, null);
+        verify(bookmarkService, never()).getAllBookmarks(anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /v1/bookmarks/search?q= should return ranked page with nextCursor")
+    void searchBookmarks() {
+        //Mock
+        var data = new BookmarkResponse.Page(List.of(
+                new Bookmark(105L, "Spring-Title", "https://spring-url", LocalDateTime.now())
+        ), "next-cursor");
+        when(bookmarkService.searchBookmarks(anyString(), any(), anyInt())).thenReturn(ResponseEntity.ok().body(data));
+
+        //Arrange & Act
+        var result = mockMvcTester.get().uri("/v1/bookmarks/search")
+                .param("q", "spring")
+                .param("size", "1")
+                .exchange();
+
+        //Assertion
+        result.assertThat().hasStatusOk();
+        result.assertThat().bodyJson()
+                .extractingPath("$.data.[0].id")
+                .isEqualTo(105);
+        result.assertThat().bodyJson()
+                .extractingPath("$.nextCursor")
+                .isEqualTo("next-cursor");
+
+        //Verify
+        verify(bookmarkService, times(1)).searchBookmarks("spring", null, 1);
+        verify(bookmarkService, never()).getBookmarkById(anyLong(), any());
     }
 
     @Test
     @DisplayName("GET /v1/bookmarks/{id} should return bookmark data of {id}")
     void getBookmarkById() {
         //Mock
-        Map<String, Object> data = Map.of("data", List.of(
-                new Bookmark(101L, "Demo-Title", "https://demo-url", LocalDateTime.now())
-        ));
-        when(bookmarkService.getBookmarkById(anyLong())).thenReturn(ResponseEntity.ok().body(data));
+        var data = new BookmarkResponse.Item(
+                new Bookmark(101L, "Demo-Title", "https://demo-url", LocalDateTime.now()));
+        when(bookmarkService.getBookmarkById(anyLong(), any())).thenReturn(ResponseEntity.ok().body(data));
 
         //Arrange & Act
         var result = mockMvcTester.get().uri("/v1/bookmarks/101").exchange();
@@ -84,24 +141,68 @@ class BookmarkControllerWithMockMvcTesterTest {
         result.assertThat().hasStatusOk();
         result.assertThat().hasContentTypeCompatibleWith(MediaType.APPLICATION_JSON);
         result.assertThat().bodyJson()
-                .extractingPath("$.data.[0].id")
+                .extractingPath("$.data.id")
                 .isEqualTo(101);
         result.assertThat().bodyJson()
-                .extractingPath("$.data.[0].title")
+                .extractingPath("$.data.title")
                 .isEqualTo("Demo-Title");
 
         //Verify
-        verify(bookmarkService, times(1)).getBookmarkById(anyLong());
+        verify(bookmarkService, times(1)).getBookmarkById(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("GET /v1/bookmarks?url= should return bookmark data of url")
+    void getBookmarkByUrl() {
+        //Mock
+        var data = new BookmarkResponse.Item(
+                new Bookmark(101L, "Demo-Title", "https://demo-url", LocalDateTime.now()));
+        when(bookmarkService.getBookmarkByUrl(anyString(), any())).thenReturn(ResponseEntity.ok().body(data));
+
+        //Arrange & Act
+        var result = mockMvcTester.get().uri("/v1/bookmarks")
+                .param("url", "https://demo-url")
+                .exchange();
+
+        //Assertion
+        result.assertThat().hasStatusOk();
+        result.assertThat().bodyJson()
+                .extractingPath("$.data.id")
+                .isEqualTo(101);
+
+        //Verify
+        verify(bookmarkService, times(1)).getBookmarkByUrl("https://demo-url", null);
+        verify(bookmarkService, never()).getAllBookmarks(anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /v1/bookmarks/{id} with a matching If-None-Match should return HttpStatus NOT_MODIFIED")
+    void getBookmarkByIdNotModified() {
+        //Mock
+        when(bookmarkService.getBookmarkById(anyLong(), any())).thenReturn(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag("\"101-1\"")
+                .build());
+
+        //Arrange & Act
+        var result = mockMvcTester.get().uri("/v1/bookmarks/101")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"101-1\"")
+                .exchange();
+
+        //Assertion
+        result.assertThat().hasStatus(HttpStatus.NOT_MODIFIED);
+        result.assertThat().hasHeader(HttpHeaders.ETAG, "\"101-1\"");
+        result.assertThat().body().isEmpty();
+
+        //Verify
+        verify(bookmarkService, times(1)).getBookmarkById(101L, "\"101-1\"");
     }
 
     @Test
     @DisplayName("POST /v1/bookmarks should return HttpStatus CREATED")
     void createBookmark() {
-        //Arrange
-        var created = new Bookmark(201L, "New-Title", "https://new-url", LocalDateTime.now());
         //Mock
         when(bookmarkService.createBookmark(any(Bookmark.class)))
-                .thenReturn(ResponseEntity.status(HttpStatus.CREATED).body(Map.of("data", created)));
+                .thenReturn(ResponseEntity.status(HttpStatus.CREATED).body(new BookmarkResponse.Created(201L, "Bookmark created successfully")));
 
         //Act
         var result = mockMvcTester.post()
@@ -119,22 +220,56 @@ class BookmarkControllerWithMockMvcTesterTest {
         result.assertThat().hasStatus(HttpStatus.CREATED);
         result.assertThat().hasContentTypeCompatibleWith(MediaType.APPLICATION_JSON);
         result.assertThat().bodyJson()
-                .extractingPath("$.data.id")
+                .extractingPath("$.id")
                 .isEqualTo(201);
         result.assertThat().bodyJson()
-                .extractingPath("$.data.title")
-                .isEqualTo("New-Title");
+                .extractingPath("$.message")
+                .isEqualTo("Bookmark created successfully");
 
         //Verify
         verify(bookmarkService, times(1)).createBookmark(any(Bookmark.class));
     }
 
+    @Test
+    @DisplayName("POST /v1/bookmarks/batch should return per-item results")
+    void createBookmarks() {
+        //Mock
+        when(bookmarkService.createBookmarks(anyList()))
+                .thenReturn(ResponseEntity.status(HttpStatus.CREATED).body(new BookmarkResponse.Batch(List.of(
+                        BookmarkResponse.BatchItem.created(301L),
+                        BookmarkResponse.BatchItem.failed("Bookmark already exists with URL: https://dup-url")))));
+
+        //Act
+        var result = mockMvcTester.post()
+                .uri("/v1/bookmarks/batch")
+                .content("""
+                        [
+                            {"title": "New-Title", "url": "https://new-url"},
+                            {"title": "Dup-Title", "url": "https://dup-url"}
+                        ]
+                        """)
+                .contentType(MediaType.APPLICATION_JSON)
+                .exchange();
+
+        //Assertion
+        result.assertThat().hasStatus(HttpStatus.CREATED);
+        result.assertThat().bodyJson()
+                .extractingPath("$.data.[0].id")
+                .isEqualTo(301);
+        result.assertThat().bodyJson()
+                .extractingPath("$.data.[1].error")
+                .isEqualTo("Bookmark already exists with URL: https://dup-url");
+
+        //Verify
+        verify(bookmarkService, times(1)).createBookmarks(anyList());
+    }
+
     @Test
     @DisplayName("PUT /v1/bookmarks/{id} should return HttpStatus NO_CONTENT")
     void updateBookmark() {
         //Mock
         when(bookmarkService.updateBookmark(any(Bookmark.class))).thenReturn(ResponseEntity.status(HttpStatus.NO_CONTENT)
-                .body(Map.of("data", "Bookmark updated successfully")));
+                .body(new BookmarkResponse.Message("Bookmark updated successfully")));
 
         //Arrange & Act
         var result = mockMvcTester.put()
@@ -157,12 +292,41 @@ class BookmarkControllerWithMockMvcTesterTest {
         verify(bookmarkService, times(1)).updateBookmark(any(Bookmark.class));
     }
 
+    @Test
+    @DisplayName("PUT /v1/bookmarks/by-url should return HttpStatus OK for an existing url")
+    void upsertBookmarkByUrl() {
+        //Mock
+        when(bookmarkService.upsertBookmarkByUrl(any(Bookmark.class)))
+                .thenReturn(ResponseEntity.ok().body(new BookmarkResponse.Created(101L, "Bookmark updated successfully")));
+
+        //Arrange & Act
+        var result = mockMvcTester.put()
+                .uri("/v1/bookmarks/by-url")
+                .content("""
+                        {
+                            "title": "Renamed-Title",
+                            "url": "https://demo-url"
+                        }
+                        """)
+                .contentType(MediaType.APPLICATION_JSON)
+                .exchange();
+
+        //Assertion
+        result.assertThat().hasStatusOk();
+        result.assertThat().bodyJson()
+                .extractingPath("$.id")
+                .isEqualTo(101);
+
+        //Verify
+        verify(bookmarkService, times(1)).upsertBookmarkByUrl(new Bookmark(null, "Renamed-Title", "https://demo-url", null));
+    }
+
     @Test
     @DisplayName("DELETE /v1/bookmarks/{id} should return HttpStatus NO_CONTENT")
     void deleteBookmarkById() {
         //Mock
         when(bookmarkService.deleteBookmarkById(anyLong())).thenReturn(ResponseEntity.status(HttpStatus.NO_CONTENT)
-                .body(Map.of("data", "Bookmark deleted successfully")));
+                .body(new BookmarkResponse.Message("Bookmark deleted successfully")));
 
         //Arrange & Act
         var result = mockMvcTester.delete().uri("/v1/bookmarks/101").exchange();
@@ -14,7 +14,6 @@ import org.springframework.test.web.servlet.client.RestTestClient;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -37,13 +36,13 @@ class BookmarkControllerWithRestTestClientTest {
     @DisplayName("GET /v1/bookmarks should return list of data")
     void getAllBookmarks() {
         //Arrange
-        Map<String, Object> data = Map.of("data", List.of(
+        var data = new BookmarkResponse.Page(List.of(
                 new Bookmark(101L, "Demo-Title", "https://demo-url", LocalDateTime.now()),
                 new Bookmark(102L, "Test-Title", "https://test-url", LocalDateTime.now())
         ));
 
         //Mock
-        when(bookmarkService.getAllBookmarks(anyInt(), anyInt())).thenReturn(ResponseEntity.ok().body(data));
+        when(bookmarkService.getAllBookmarks(anyInt(), anyInt(), any(), any())).thenReturn(ResponseEntity.ok().body(data));
 
         //Act & Assert
         restTestClient.get().uri("/v1/bookmarks")
@@ -56,12 +55,12 @@ class BookmarkControllerWithRestTestClientTest {
                 .isEqualTo(101);
 
         //Arrange
-        Map<String, Object> dataWithPagination = Map.of("data", List.of(
+        var dataWithPagination = new BookmarkResponse.Page(List.of(
                 new Bookmark(102L, "Test-Title", "https://test-url", LocalDateTime.now())
         ));
 
         //Mock
-        when(bookmarkService.getAllBookmarks(anyInt(), anyInt())).thenReturn(ResponseEntity.ok().body(dataWithPagination));
+        when(bookmarkService.getAllBookmarks(anyInt(), anyInt(), any(), any())).thenReturn(ResponseEntity.ok().body(dataWithPagination));
 
         //Act & Assert
         restTestClient.get().uri("/v1/bookmarks")
@@ -76,17 +75,16 @@ class BookmarkControllerWithRestTestClientTest {
                 .isEqualTo(102);
 
         //Verify
-        verify(bookmarkService, Mockito.times(2)).getAllBookmarks(anyInt(), anyInt());
+        verify(bookmarkService, Mockito.times(2)).getAllBookmarks(anyInt(), anyInt(), any(), any());
     }
 
     @Test
     @DisplayName("GET /v1/bookmarks/{id} should return bookmark data of {id}")
     void getBookmarkById() {
         //Mock
-        Map<String, Object> data = Map.of("data", List.of(
-                new Bookmark(101L, "Demo-Title", "https://demo-url", LocalDateTime.now())
-        ));
-        when(bookmarkService.getBookmarkById(anyLong())).thenReturn(ResponseEntity.ok().body(data));
+        var data = new BookmarkResponse.Item(
+                new Bookmark(101L, "Demo-Title", "https://demo-url", LocalDateTime.now()));
+        when(bookmarkService.getBookmarkById(anyLong(), any())).thenReturn(ResponseEntity.ok().body(data));
 
         //Act & Assert
         restTestClient.get().uri("/v1/bookmarks/101")
@@ -95,23 +93,21 @@ class BookmarkControllerWithRestTestClientTest {
                 .is2xxSuccessful()
                 .expectHeader().contentType(MediaType.APPLICATION_JSON)
                 .expectBody()
-                .jsonPath("$.data.[0].id")
+                .jsonPath("$.data.id")
                 .isEqualTo(101)
-                .jsonPath("$.data.[0].title")
+                .jsonPath("$.data.title")
                 .isEqualTo("Demo-Title");
 
         //Verify
-        verify(bookmarkService, times(1)).getBookmarkById(anyLong());
+        verify(bookmarkService, times(1)).getBookmarkById(anyLong(), any());
     }
 
     @Test
     @DisplayName("POST /v1/bookmarks should return HttpStatus CREATED")
     void createBookmark() {
-        //Arrange
-        var created = new Bookmark(201L, "New-Title", "https://new-url", LocalDateTime.now());
         //Mock
         when(bookmarkService.createBookmark(any(Bookmark.class)))
-                .thenReturn(ResponseEntity.status(HttpStatus.CREATED).body(Map.of("data", created)));
+                .thenReturn(ResponseEntity.status(HttpStatus.CREATED).body(new BookmarkResponse.Created(201L, "Bookmark created successfully")));
 
         //Act & Assert
         restTestClient.post().uri("/v1/bookmarks")
@@ -127,10 +123,10 @@ class BookmarkControllerWithRestTestClientTest {
                 .isEqualTo(HttpStatus.CREATED)
                 .expectHeader().contentType(MediaType.APPLICATION_JSON)
                 .expectBody()
-                .jsonPath("$.data.id")
+                .jsonPath("$.id")
                 .isEqualTo(201)
-                .jsonPath("$.data.title")
-                .isEqualTo("New-Title");
+                .jsonPath("$.message")
+                .isEqualTo("Bookmark created successfully");
 
         //Verify
         verify(bookmarkService, times(1)).createBookmark(any(Bookmark.class));
@@ -141,7 +137,7 @@ class BookmarkControllerWithRestTestClientTest {
     void updateBookmark() {
         //Mock
         when(bookmarkService.updateBookmark(any(Bookmark.class))).thenReturn(ResponseEntity.status(HttpStatus.NO_CONTENT)
-                .body(Map.of("data", "Bookmark updated successfully")));
+                .body(new BookmarkResponse.Message("Bookmark updated successfully")));
 
         //Act & Assert
         restTestClient.put().uri("/v1/bookmarks")
@@ -167,7 +163,7 @@ class BookmarkControllerWithRestTestClientTest {
     void deleteBookmarkById() {
         //Mock
         when(bookmarkService.deleteBookmarkById(anyLong())).thenReturn(ResponseEntity.status(HttpStatus.NO_CONTENT)
-                .body(Map.of("data", "Bookmark deleted successfully")));
+                .body(new BookmarkResponse.Message("Bookmark deleted successfully")));
 
         //Act & Assert
         restTestClient.delete().uri("/v1/bookmarks/101")
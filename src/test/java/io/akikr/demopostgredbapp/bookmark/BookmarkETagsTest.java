@@ -0,0 +1,44 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookmarkETagsTest {
+
+    @Test
+    void shouldTagBookmarkWithIdAndVersion() {
+        // Arrange
+        var bookmark = new Bookmark(101L, "Demo-Title", "https://demo-url", LocalDateTime.now(), 3L);
+
+        // Act & Assert
+        assertThat(BookmarkETags.of(bookmark)).isEqualTo("\"101-3\"");
+        assertThat(BookmarkETags.ofChangeCount(42)).isEqualTo("\"c42\"");
+    }
+
+    @Test
+    void shouldMatchIfNoneMatchWithWeakComparison() {
+        // Arrange
+        String eTag = "\"101-3\"";
+
+        // Act & Assert
+        assertThat(BookmarkETags.matches("\"101-3\"", eTag)).isTrue();
+        assertThat(BookmarkETags.matches("W/\"101-3\"", eTag)).isTrue();
+        assertThat(BookmarkETags.matches("\"101-2\", \"101-3\"", eTag)).isTrue();
+        assertThat(BookmarkETags.matches("*", eTag)).isTrue();
+    }
+
+    @Test
+    void shouldNotMatchMissingOrStaleIfNoneMatch() {
+        // Arrange
+        String eTag = "\"101-3\"";
+
+        // Act & Assert
+        assertThat(BookmarkETags.matches(null, eTag)).isFalse();
+        assertThat(BookmarkETags.matches(" ", eTag)).isFalse();
+        assertThat(BookmarkETags.matches("\"101-2\"", eTag)).isFalse();
+        assertThat(BookmarkETags.matches("101-3", eTag)).isFalse();
+    }
+}
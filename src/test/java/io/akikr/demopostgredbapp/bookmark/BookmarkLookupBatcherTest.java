@@ -0,0 +1,101 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookmarkLookupBatcherTest {
+
+    private List<List<Long>> batches;
+    private Function<List<Long>, List<Bookmark>> bulkLoader;
+
+    @BeforeEach
+    void setUp() {
+        batches = new CopyOnWriteArrayList<>();
+        // Ids above 100 do not exist
+        bulkLoader = ids -> {
+            batches.add(ids);
+            return ids.stream()
+                    .filter(id -> id <= 100)
+                    .map(id -> new Bookmark(id, "Title-" + id, "https://url/" + id, LocalDateTime.now()))
+                    .toList();
+        };
+    }
+
+    @Test
+    void shouldMergeConcurrentLookupsIntoOneQuery() {
+        // Arrange
+        var batcher = new BookmarkLookupBatcher(bulkLoader, Duration.ofMillis(200), 10);
+
+        // Act
+        List<CompletableFuture<Optional<Bookmark>>> lookups = LongStream.rangeClosed(95, 104)
+                .mapToObj(batcher::loadAsync)
+                .toList();
+
+        // Assert
+        assertThat(lookups.get(0).join()).get().extracting(Bookmark::id).isEqualTo(95L);
+        assertThat(lookups.get(9).join()).isEmpty();
+        assertThat(batches).hasSize(1);
+        assertThat(batches.getFirst()).hasSize(10);
+    }
+
+    @Test
+    void shouldShareOneInFlightLookupPerId() {
+        // Arrange
+        var batcher = new BookmarkLookupBatcher(bulkLoader, Duration.ofMillis(50), 10);
+
+        // Act
+        var first = batcher.loadAsync(1L);
+        var second = batcher.loadAsync(1L);
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        assertThat(first.join()).isPresent();
+        assertThat(batches).containsExactly(List.of(1L));
+    }
+
+    @Test
+    void shouldSplitBatchesAtMaxBatchSize() {
+        // Arrange
+        var batcher = new BookmarkLookupBatcher(bulkLoader, Duration.ofSeconds(10), 4);
+
+        // Act
+        // With a 10s max wait this only completes because full batches are dispatched right away
+        List<CompletableFuture<Optional<Bookmark>>> lookups = LongStream.rangeClosed(1, 8)
+                .mapToObj(batcher::loadAsync)
+                .toList();
+        CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new)).join();
+
+        // Assert
+        assertThat(batches).hasSize(2);
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSize(4));
+    }
+
+    @Test
+    void shouldFailEveryLookupOfAFailedBatch() {
+        // Arrange
+        var batcher = new BookmarkLookupBatcher(ids -> {
+            throw new IllegalStateException("connection refused");
+        }, Duration.ofMillis(50), 10);
+
+        // Act
+        var other = batcher.loadAsync(2L);
+
+        // Assert
+        assertThatThrownBy(() -> batcher.load(1L))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("connection refused");
+        assertThat(other).isCompletedExceptionally();
+    }
+}
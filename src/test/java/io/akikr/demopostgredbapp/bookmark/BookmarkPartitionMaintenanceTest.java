@@ -0,0 +1,76 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.BookmarkPartitionProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+
+import static java.util.Objects.nonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookmarkPartitionMaintenanceTest {
+
+    private final BookmarkRepository bookmarkRepository = mock(BookmarkRepository.class);
+    private BookmarkPartitionMaintenance bookmarkPartitionMaintenance;
+
+    @AfterEach
+    void tearDown() {
+        if (nonNull(bookmarkPartitionMaintenance)) {
+            bookmarkPartitionMaintenance.stop();
+        }
+    }
+
+    @Test
+    void shouldEnsurePartitionsRightAtStartup() {
+        // Arrange
+        when(bookmarkRepository.ensurePartitions(anyInt())).thenReturn(1);
+        bookmarkPartitionMaintenance = new BookmarkPartitionMaintenance(bookmarkRepository,
+                new BookmarkPartitionProperties(true, 3, Duration.ofHours(6)));
+
+        // Act
+        bookmarkPartitionMaintenance.start();
+
+        // Assert
+        assertThat(bookmarkPartitionMaintenance.isRunning()).isTrue();
+        verify(bookmarkRepository, timeout(5_000)).ensurePartitions(3);
+    }
+
+    @Test
+    void shouldKeepCheckingAfterAFailedCheck() {
+        // Arrange
+        // e.g. the partition creation ran into its lock timeout
+        when(bookmarkRepository.ensurePartitions(anyInt()))
+                .thenThrow(new QueryTimeoutException("canceling statement due to lock timeout"))
+                .thenReturn(0);
+        bookmarkPartitionMaintenance = new BookmarkPartitionMaintenance(bookmarkRepository,
+                new BookmarkPartitionProperties(true, 3, Duration.ofMillis(10)));
+
+        // Act
+        bookmarkPartitionMaintenance.start();
+
+        // Assert
+        verify(bookmarkRepository, timeout(5_000).atLeast(2)).ensurePartitions(3);
+    }
+
+    @Test
+    void shouldNotCheckWhenDisabled() {
+        // Arrange
+        bookmarkPartitionMaintenance = new BookmarkPartitionMaintenance(bookmarkRepository,
+                new BookmarkPartitionProperties(false, 3, Duration.ofMillis(10)));
+
+        // Act
+        bookmarkPartitionMaintenance.start();
+
+        // Assert
+        assertThat(bookmarkPartitionMaintenance.isRunning()).isFalse();
+        verify(bookmarkRepository, after(100).never()).ensurePartitions(anyInt());
+    }
+}
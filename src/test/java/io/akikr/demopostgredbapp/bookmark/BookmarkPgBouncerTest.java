@@ -0,0 +1,65 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.PostgreTestContainer;
+import io.akikr.demopostgredbapp.config.BookmarkCacheProperties;
+import io.akikr.demopostgredbapp.config.BookmarkLookupBatchProperties;
+import io.akikr.demopostgredbapp.config.ReadYourWrites;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.test.autoconfigure.JdbcTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+// Runs the repository with the 'pgbouncer' profile. Behind a transaction-pooling PgBouncer the next transaction may
+// land on a server connection that never saw a statement prepared by the previous one, so none may be left behind.
+@JdbcTest
+@ActiveProfiles("pgbouncer")
+class BookmarkPgBouncerTest extends PostgreTestContainer {
+
+    @Autowired
+    private JdbcClient jdbcClient;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BookmarkRepository bookmarkRepository;
+
+    @BeforeEach
+    void setUp() {
+        var meterRegistry = new SimpleMeterRegistry();
+        bookmarkRepository = new BookmarkRepository(jdbcClient, transactionManager,
+                new BookmarkCache(new BookmarkCacheProperties(false, 0, Duration.ZERO, Duration.ZERO), meterRegistry),
+                new BookmarkLookupBatchProperties(false, Duration.ZERO, 1),
+                new BookmarkQueryObserver(ObservationRegistry.NOOP, meterRegistry), ReadYourWrites.NONE);
+    }
+
+    @Test
+    @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
+    void shouldNeverPrepareStatementsServerSide() {
+        // Arrange
+        final String SELECT_PREPARED_STATEMENTS_QUERY = """
+                SELECT count(*) FROM pg_prepared_statements
+                """;
+
+        // Act
+        // Well past PgJDBC's prepareThreshold, on the single connection of the test transaction
+        for (int i = 0; i < 10; i++) {
+            assertThat(bookmarkRepository.findAll(0, 6)).hasSize(6);
+            assertThat(bookmarkRepository.findById(1L)).isPresent();
+            assertThat(bookmarkRepository.search("bookmark", null, 6)).isNotNull();
+        }
+
+        // Assert
+        assertThat(jdbcClient.sql(SELECT_PREPARED_STATEMENTS_QUERY).query(Long.class).single()).isZero();
+    }
+}
@@ -0,0 +1,84 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookmarkQueryObserverTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private List<Observation.Context> stoppedContexts;
+    private BookmarkQueryObserver queryObserver;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        stoppedContexts = new CopyOnWriteArrayList<>();
+        var observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig()
+                .observationHandler(new DefaultMeterObservationHandler(meterRegistry))
+                // Stands in for the tracing handler, which turns every key value into a span attribute
+                .observationHandler(new ObservationHandler<>() {
+                    @Override
+                    public void onStop(Observation.Context context) {
+                        stoppedContexts.add(context);
+                    }
+
+                    @Override
+                    public boolean supportsContext(Observation.Context context) {
+                        return true;
+                    }
+                });
+        queryObserver = new BookmarkQueryObserver(observationRegistry, meterRegistry);
+    }
+
+    @Test
+    void shouldTimeQueryWithOperationOutcomeAndTags() {
+        // Act
+        List<String> rows = queryObserver.observe("findAll", "SELECT_BOOKMARKS_QUERY",
+                KeyValues.of(BookmarkQueryObserver.pageDepth(42)), () -> List.of("a", "b", "c"), List::size);
+
+        // Assert
+        assertThat(rows).hasSize(3);
+        assertThat(meterRegistry.get(BookmarkQueryObserver.OBSERVATION_NAME)
+                .tags("operation", "findAll", "page.depth", "10-99", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+        var context = stoppedContexts.getFirst();
+        assertThat(context.getContextualName()).isEqualTo("bookmarks findAll");
+        assertThat(context.getHighCardinalityKeyValue("db.query.name").getValue()).isEqualTo("SELECT_BOOKMARKS_QUERY");
+        assertThat(context.getHighCardinalityKeyValue("db.response.returned_rows").getValue()).isEqualTo("3");
+    }
+
+    @Test
+    void shouldTimeFailedQueryAsError() {
+        // Act & Assert
+        assertThatThrownBy(() -> queryObserver.observe("save", "INSERT_BOOKMARK_QUERY", () -> {
+            throw new IllegalStateException("duplicate key");
+        }, value -> 1)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(meterRegistry.get(BookmarkQueryObserver.OBSERVATION_NAME)
+                .tags("operation", "save", "outcome", "error", "error", "IllegalStateException")
+                .timer().count()).isEqualTo(1);
+        assertThat(stoppedContexts.getFirst().getError()).hasMessage("duplicate key");
+    }
+
+    @Test
+    void shouldBucketPageDepth() {
+        // Act & Assert
+        assertThat(BookmarkQueryObserver.pageDepth(0).getValue()).isEqualTo("0");
+        assertThat(BookmarkQueryObserver.pageDepth(9).getValue()).isEqualTo("1-9");
+        assertThat(BookmarkQueryObserver.pageDepth(10).getValue()).isEqualTo("10-99");
+        assertThat(BookmarkQueryObserver.pageDepth(100).getValue()).isEqualTo("100+");
+    }
+}
@@ -1,16 +1,34 @@
 package io.akikr.demopostgredbapp.bookmark;
 
 import io.akikr.demopostgredbapp.PostgreTestContainer;
+import io.akikr.demopostgredbapp.config.BookmarkCacheProperties;
+import io.akikr.demopostgredbapp.config.BookmarkLookupBatchProperties;
+import io.akikr.demopostgredbapp.config.ReadYourWrites;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.instancio.Instancio;
 import org.instancio.generators.Generators;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.jdbc.test.autoconfigure.JdbcTest;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -23,11 +41,21 @@ class BookmarkRepositoryTest extends PostgreTestContainer {
     @Autowired
     private JdbcClient jdbcClient;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private BookmarkRepository bookmarkRepository;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
-        bookmarkRepository = new BookmarkRepository(jdbcClient);
+        meterRegistry = new SimpleMeterRegistry();
+        var observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        var bookmarkCacheProperties = new BookmarkCacheProperties(true, 100, Duration.ofMinutes(1), Duration.ofSeconds(5));
+        bookmarkRepository = new BookmarkRepository(jdbcClient, transactionManager, new BookmarkCache(bookmarkCacheProperties, meterRegistry),
+                new BookmarkLookupBatchProperties(true, Duration.ofNanos(200_000), 64),
+                new BookmarkQueryObserver(observationRegistry, meterRegistry), ReadYourWrites.NONE);
         System.out.println("BookmarkRepository initialized for testing");
     }
 
@@ -47,6 +75,63 @@ class BookmarkRepositoryTest extends PostgreTestContainer {
         assertThat(bookmarks).hasSize(6); // Assuming 6 bookmarks are inserted in test-data.sql
     }
 
+    @Test
+    @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
+    void shouldFindBookmarksAfterCursor() {
+        // Arrange
+        // Assuming test-data.sql has been executed to insert 6 bookmarks sharing the same created_at
+        int pageSize = 4;
+
+        // Act
+        var firstPage = bookmarkRepository.findAllAfter(null, pageSize);
+        var secondPage = bookmarkRepository.findAllAfter(BookmarkCursor.of(firstPage.getLast()), pageSize);
+
+        // Assert
+        assertThat(firstPage).extracting(Bookmark::id).containsExactly(6L, 5L, 4L, 3L);
+        assertThat(secondPage).extracting(Bookmark::id).containsExactly(2L, 1L);
+    }
+
+    @Test
+    @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
+    void shouldSearchBookmarksByTitlePrefixAndUrl() {
+        // Act
+        var hits = bookmarkRepository.search("spring", null, 10);
+
+        // Assert
+        // 'Spring' and 'SpringBoot' titles match the prefix term, all three urls contain 'spring'
+        assertThat(hits).extracting(hit -> hit.bookmark().id()).containsExactlyInAnyOrder(4L, 5L, 6L);
+        assertThat(hits).extracting(BookmarkRepository.SearchHit::rank).isSortedAccordingTo((a, b) -> Float.compare(b, a));
+    }
+
+    @Test
+    @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
+    void shouldSearchBookmarksAfterCursor() {
+        // Arrange
+        // Assuming test-data.sql has been executed to insert 6 bookmarks whose urls all contain 'sivalabs'
+        int pageSize = 4;
+
+        // Act
+        var firstPage = bookmarkRepository.search("sivalabs", null, pageSize);
+        var secondPage = bookmarkRepository.search("sivalabs", BookmarkSearchCursor.of(firstPage.getLast()), pageSize);
+
+        // Assert
+        assertThat(firstPage).extracting(hit -> hit.bookmark().id()).containsExactly(6L, 5L, 4L, 3L);
+        assertThat(secondPage).extracting(hit -> hit.bookmark().id()).containsExactly(2L, 1L);
+    }
+
+    @Test
+    @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
+    void shouldExportAllBookmarks() {
+        // Arrange
+        var exported = new ArrayList<Bookmark>();
+
+        // Act
+        bookmarkRepository.exportAll(exported::add);
+
+        // Assert
+        assertThat(exported).hasSize(6); // Assuming 6 bookmarks are inserted in test-data.sql
+    }
+
     @Test
     void shouldCreateBookmark() {
         // Arrange
@@ -59,6 +144,44 @@ class BookmarkRepositoryTest extends PostgreTestContainer {
         assertThat(createdBookmarkId).isNotNull();
     }
 
+    @Test
+    @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
+    void shouldCreateBookmarksInBatchAndSkipDuplicateUrls() {
+        // Arrange
+        var bookmarks = List.of(
+                new Bookmark(null, "Batch One", "https://batch-one.com", null),
+                new Bookmark(null, "Existing", "https://sivalabs.in/spring-boot-testing", null),
+                new Bookmark(null, "Batch Two", "https://batch-two.com", null),
+                new Bookmark(null, "Batch One Again", "https://batch-one.com", null));
+
+        // Act
+        var savedIds = bookmarkRepository.saveAll(bookmarks);
+
+        // Assert
+        assertThat(savedIds).hasSize(4);
+        assertThat(savedIds.get(0)).isNotNull();
+        assertThat(savedIds.get(1)).isNull();
+        assertThat(savedIds.get(2)).isNotNull().isGreaterThan(savedIds.get(0));
+        assertThat(savedIds.get(3)).isNull();
+        assertThat(bookmarkRepository.findById(savedIds.get(2))).get()
+                .extracting(Bookmark::title).isEqualTo("Batch Two");
+    }
+
+    @Test
+    @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
+    void shouldKeepChangeCountWhenABatchInsertsNoRow() {
+        // Arrange
+        long changeCountBefore = bookmarkRepository.changeCount();
+
+        // Act
+        var savedIds = bookmarkRepository.saveAll(List.of(
+                new Bookmark(null, "Existing", "https://sivalabs.in/spring-boot-testing", null)));
+
+        // Assert
+        assertThat(savedIds).containsOnlyNulls();
+        assertThat(bookmarkRepository.changeCount()).isEqualTo(changeCountBefore);
+    }
+
     @Test
     @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
     void shouldGetBookmarkById() {
@@ -79,6 +202,177 @@ class BookmarkRepositoryTest extends PostgreTestContainer {
         assertThat(bookmark.get().id()).isEqualTo(bookmarkId);
     }
 
+    @Test
+    @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldBatchConcurrentLookupsOutsideTransactions() throws Exception {
+        // Arrange
+        // Assuming test-data.sql has been executed to insert bookmarks with ids 1 to 6, and committed
+        List<Long> ids = List.of(1L, 2L, 3L, 4L, 5L, 6L, 6L, 999L);
+
+        // Act
+        List<Optional<Bookmark>> results;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var lookups = ids.stream()
+                    .map(id -> executor.submit(() -> bookmarkRepository.findById(id)))
+                    .toList();
+            results = new ArrayList<>();
+            for (var lookup : lookups) {
+                results.add(lookup.get());
+            }
+        }
+
+        // Assert
+        assertThat(results.subList(0, 7)).allSatisfy(result -> assertThat(result).isPresent());
+        assertThat(results.get(5)).get().extracting(Bookmark::id).isEqualTo(6L);
+        assertThat(results.get(7)).isEmpty();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
+    void shouldTimeEachOperationWithOutcomeAndPageDepth() {
+        // Act
+        bookmarkRepository.findAll(0, 5);
+        bookmarkRepository.findAll(12, 5);
+        bookmarkRepository.deleteById(1L);
+        assertThatThrownBy(() -> bookmarkRepository.deleteById(1L)).isInstanceOf(IllegalStateException.class);
+
+        // Assert
+        assertThat(meterRegistry.get(BookmarkQueryObserver.OBSERVATION_NAME)
+                .tags("operation", "findAll", "page.depth", "0", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(BookmarkQueryObserver.OBSERVATION_NAME)
+                .tags("operation", "findAll", "page.depth", "10-99", "outcome", "success").timer().count()).isEqualTo(1);
+        // Deleting a missing row is a successful statement that affected no row
+        assertThat(meterRegistry.get(BookmarkQueryObserver.OBSERVATION_NAME)
+                .tags("operation", "deleteById", "outcome", "success").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @Sql(scripts = "classpath:test-data.sql", executionPhase = BEFORE_TEST_METHOD)
+    void shouldPrepareRepeatedStatementsServerSide() {
+        // Arrange
+        // The test transaction keeps one connection, PgJDBC's default prepareThreshold is 5
+        final String SELECT_PREPARED_STATEMENTS_QUERY = """
+                SELECT statement FROM pg_prepared_statements
+                """;
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            assertThat(bookmarkRepository.findAll(0, 6)).hasSize(6);
+        }
+
+        // Assert
+        assertThat(jdbcClient.sql(SELECT_PREPARED_STATEMENTS_QUERY).query(String.class).list())
+                .anySatisfy(statement -> assertThat(statement).contains("OFFSET $1 LIMIT $2"));
+    }
+
+    @Test
+    void shouldFindBookmarkByUrl() {
+        // Arrange
+        Long bookmarkId = bookmarkRepository.save(new Bookmark(null, "By-Url", "https://by-url.com", null));
+
+        // Act
+        var found = bookmarkRepository.findByUrl("https://by-url.com");
+        var missing = bookmarkRepository.findByUrl("https://missing-url.com");
+
+        // Assert
+        assertThat(found).get().extracting(Bookmark::id).isEqualTo(bookmarkId);
+        assertThat(missing).isEmpty();
+    }
+
+    @Test
+    void shouldCollapseNearDuplicateUrls() {
+        // Arrange
+        Long bookmarkId = bookmarkRepository.save(new Bookmark(null, "Canonical", "https://canonical.com/docs", null));
+
+        // Act
+        var found = bookmarkRepository.findByUrl("HTTPS://Canonical.COM:443/docs/");
+        var savedIds = bookmarkRepository.saveAll(List.of(
+                new Bookmark(null, "Canonical-Port", "https://canonical.com:443/docs", null),
+                new Bookmark(null, "Canonical-Other", "https://canonical.com/other", null),
+                new Bookmark(null, "Canonical-Other-Slash", "https://canonical.com/other/", null)));
+
+        // Assert
+        assertThat(found).get().extracting(Bookmark::id).isEqualTo(bookmarkId);
+        assertThat(savedIds.get(0)).isNull();
+        assertThat(savedIds.get(1)).isNotNull();
+        assertThat(savedIds.get(2)).isNull();
+        assertThatThrownBy(() -> bookmarkRepository.save(new Bookmark(null, "Canonical-Case", "http://CANONICAL.com:80/other", null)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void shouldKeepBookmarksPastTheCurrentMonthInMonthlyPartitions() {
+        // Arrange
+        final String SELECT_PARTITION_QUERY = """
+                SELECT tableoid::regclass::text FROM bookmarks WHERE id = :id
+                """;
+        final String INSERT_NEXT_MONTH_QUERY = """
+                INSERT INTO bookmarks (title, url, created_at) VALUES (:title, :url, LOCALTIMESTAMP + INTERVAL '1 month')
+                RETURNING id
+                """;
+        Long bookmarkId = bookmarkRepository.save(new Bookmark(null, "Partitioned", "https://partitioned.com", null));
+        Long nextMonthBookmarkId = jdbcClient.sql(INSERT_NEXT_MONTH_QUERY)
+                .param("title", "Next month")
+                .param("url", "https://partitioned.com/next-month")
+                .query(Long.class)
+                .single();
+
+        // Act
+        // init.sql already created the partitions 3 months ahead
+        int created = bookmarkRepository.ensurePartitions(3);
+
+        // Assert
+        assertThat(created).isZero();
+        // bookmarks_history ends with the current month, like the one V5 attaches
+        assertThat(jdbcClient.sql(SELECT_PARTITION_QUERY).param("id", bookmarkId).query(String.class).single())
+                .isEqualTo("bookmarks_history");
+        assertThat(jdbcClient.sql(SELECT_PARTITION_QUERY).param("id", nextMonthBookmarkId).query(String.class).single())
+                .matches("bookmarks_p[0-9]{6}");
+    }
+
+    @Test
+    void shouldUpsertBookmarkByUrl() {
+        // Act
+        var created = bookmarkRepository.upsertByUrl(new Bookmark(null, "Upsert", "https://upsert.com", null));
+        var repeated = bookmarkRepository.upsertByUrl(new Bookmark(null, "Upsert", "https://upsert.com", null));
+        var renamed = bookmarkRepository.upsertByUrl(new Bookmark(null, "Upsert-Renamed", "https://upsert.com", null));
+
+        // Assert
+        assertThat(created.created()).isTrue();
+        assertThat(repeated).isEqualTo(new BookmarkRepository.Upserted(created.id(), false));
+        assertThat(renamed).isEqualTo(new BookmarkRepository.Upserted(created.id(), false));
+        // Repeating the same upsert does not bump the version, only the rename does
+        assertThat(bookmarkRepository.findById(created.id())).get()
+                .satisfies(bookmark -> {
+                    assertThat(bookmark.title()).isEqualTo("Upsert-Renamed");
+                    assertThat(bookmark.version()).isEqualTo(2L);
+                });
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldCreateOnceAndUpdateTheRestOnConcurrentUpsertsOfANewUrl() throws Exception {
+        // Arrange
+        String url = "https://concurrent-upsert.com/" + UUID.randomUUID();
+
+        // Act
+        List<BookmarkRepository.Upserted> upserts;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> bookmarkRepository.upsertByUrl(new Bookmark(null, "Upsert " + i, url, null))))
+                    .toList();
+            upserts = new ArrayList<>();
+            for (var future : futures) {
+                upserts.add(future.get(10, TimeUnit.SECONDS));
+            }
+        }
+
+        // Assert
+        assertThat(upserts).filteredOn(BookmarkRepository.Upserted::created).hasSize(1);
+        assertThat(upserts).extracting(BookmarkRepository.Upserted::id).containsOnly(upserts.getFirst().id());
+    }
+
     @Test
     void shouldBeEmptyWhenBookmarkNotFound() {
         // Arrange
@@ -111,6 +405,27 @@ class BookmarkRepositoryTest extends PostgreTestContainer {
         assertThat(isUpdated).isTrue();
     }
 
+    @Test
+    void shouldBumpVersionAndChangeCountOnUpdate() {
+        // Arrange
+        Bookmark bookmarkData = Instancio.of(Bookmark.class)
+                .generate(field("title"), Generators::string)
+                .generate(field("url"), gen -> gen.string().prefix("https://").suffix(".com").lowerCase().length(10))
+                .create();
+        Long bookmarkId = bookmarkRepository.save(bookmarkData);
+        long changeCountBefore = bookmarkRepository.changeCount();
+
+        // Act
+        bookmarkRepository.update(new Bookmark(bookmarkId, "Updated Title", "https://updated-version.com", LocalDateTime.now()));
+
+        // Assert
+        assertThat(bookmarkRepository.findById(bookmarkId))
+                .get()
+                .extracting(Bookmark::version)
+                .isEqualTo(2L);
+        assertThat(bookmarkRepository.changeCount()).isEqualTo(changeCountBefore + 1);
+    }
+
     @Test
     void shouldThrowExceptionWhenUpdatingNonExistentBookmark() {
         // Arrange
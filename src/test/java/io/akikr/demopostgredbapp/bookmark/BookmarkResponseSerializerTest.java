@@ -0,0 +1,96 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.module.SimpleModule;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookmarkResponseSerializerTest {
+
+    // Plain mapper, the reference for the wire format of the former Map envelopes
+    private final JsonMapper defaultMapper = JsonMapper.builder().build();
+    private final JsonMapper responseMapper = JsonMapper.builder()
+            .addModule(new SimpleModule().addSerializer(BookmarkResponse.class, new BookmarkResponseSerializer()))
+            .build();
+
+    private final Bookmark bookmark = new Bookmark(101L, "Demo-Title", "https://demo-url", LocalDateTime.of(2025, 1, 2, 3, 4, 5, 6_000_000));
+
+    @Test
+    void shouldWritePageLikeTheMapEnvelope() {
+        // Arrange
+        var withoutCreatedAt = new Bookmark(102L, "Test \"Title\"", "https://test-url", null);
+        var envelope = new LinkedHashMap<String, Object>();
+        envelope.put("data", List.of(bookmark, withoutCreatedAt));
+        envelope.put("nextCursor", "next-cursor");
+
+        // Act
+        String json = responseMapper.writeValueAsString(new BookmarkResponse.Page(List.of(bookmark, withoutCreatedAt), "next-cursor"));
+
+        // Assert
+        assertThat(json).isEqualTo(defaultMapper.writeValueAsString(envelope));
+    }
+
+    @Test
+    void shouldOmitNextCursorForOffsetPages() {
+        // Act
+        String json = responseMapper.writeValueAsString(new BookmarkResponse.Page(List.of(bookmark)));
+
+        // Assert
+        assertThat(json).isEqualTo(defaultMapper.writeValueAsString(Map.of("data", List.of(bookmark))));
+    }
+
+    @Test
+    void shouldWriteTotalOnlyWhenPresent() {
+        // Arrange
+        var envelope = new LinkedHashMap<String, Object>();
+        envelope.put("data", List.of(bookmark));
+        envelope.put("total", 42L);
+
+        // Act
+        String json = responseMapper.writeValueAsString(new BookmarkResponse.Page(List.of(bookmark), null, 42L));
+
+        // Assert
+        assertThat(json).isEqualTo(defaultMapper.writeValueAsString(envelope));
+    }
+
+    @Test
+    void shouldWriteItemCreatedAndMessageLikeTheMapEnvelopes() {
+        // Arrange
+        var created = new LinkedHashMap<String, Object>();
+        created.put("id", 201L);
+        created.put("message", "Bookmark created successfully");
+
+        // Act & Assert
+        assertThat(responseMapper.writeValueAsString(new BookmarkResponse.Item(bookmark)))
+                .isEqualTo(defaultMapper.writeValueAsString(Map.of("data", bookmark)));
+        assertThat(responseMapper.writeValueAsString(new BookmarkResponse.Created(201L, "Bookmark created successfully")))
+                .isEqualTo(defaultMapper.writeValueAsString(created));
+        assertThat(responseMapper.writeValueAsString(new BookmarkResponse.Message("Bookmarks not found")))
+                .isEqualTo(defaultMapper.writeValueAsString(Map.of("message", "Bookmarks not found")));
+        assertThat(responseMapper.writeValueAsString(new BookmarkResponse.Failure("Bookmark not found with ID: 1")))
+                .isEqualTo(defaultMapper.writeValueAsString(Map.of("error", "Bookmark not found with ID: 1")));
+    }
+
+    @Test
+    void shouldWriteBatchAndImportLikeTheMapEnvelopes() {
+        // Arrange
+        var batch = new BookmarkResponse.Batch(List.of(
+                BookmarkResponse.BatchItem.created(301L),
+                BookmarkResponse.BatchItem.failed("Bookmark already exists with URL: https://dup-url")));
+        var importResult = new BookmarkCopyImporter.ImportResult(10, 8, 1, 5, 2000);
+
+        // Act & Assert
+        assertThat(responseMapper.writeValueAsString(batch))
+                .isEqualTo(defaultMapper.writeValueAsString(Map.of("data", List.of(
+                        Map.of("id", 301L),
+                        Map.of("error", "Bookmark already exists with URL: https://dup-url")))));
+        assertThat(responseMapper.writeValueAsString(new BookmarkResponse.Imported(importResult)))
+                .isEqualTo(defaultMapper.writeValueAsString(Map.of("data", importResult)));
+    }
+}
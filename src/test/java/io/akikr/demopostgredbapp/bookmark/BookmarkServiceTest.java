@@ -1,18 +1,35 @@
 package io.akikr.demopostgredbapp.bookmark;
 
 import io.akikr.demopostgredbapp.PostgreTestContainer;
+import io.akikr.demopostgredbapp.config.BookmarkBulkheadProperties;
+import io.akikr.demopostgredbapp.config.BookmarkCacheProperties;
+import io.akikr.demopostgredbapp.config.BookmarkCountProperties;
+import io.akikr.demopostgredbapp.config.BookmarkLookupBatchProperties;
+import io.akikr.demopostgredbapp.config.BookmarkPartitionProperties;
+import io.akikr.demopostgredbapp.config.BookmarkWriteBehindProperties;
+import io.akikr.demopostgredbapp.config.ReadYourWrites;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.jdbc.test.autoconfigure.JdbcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
 
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -21,16 +38,38 @@ import static org.instancio.Select.field;
 @JdbcTest
 class BookmarkServiceTest extends PostgreTestContainer {
 
+    private static final int READ_CONCURRENCY = 5;
+    private static final int EXPORT_CONCURRENCY = 2;
+
     @Autowired
     private JdbcClient jdbcClient;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
     private BookmarkRepository bookmarkRepository;
     private  BookmarkService bookmarkService;
+    private BookmarkBulkheads bookmarkBulkheads;
+    private SimpleMeterRegistry bulkheadMeterRegistry;
 
     @BeforeEach
     void setUp() {
-        bookmarkRepository = new BookmarkRepository(jdbcClient);
-        bookmarkService = new BookmarkServiceImpl(bookmarkRepository);
+        var bookmarkCacheProperties = new BookmarkCacheProperties(true, 100, Duration.ofMinutes(1), Duration.ofSeconds(5));
+        var bookmarkCache = new BookmarkCache(bookmarkCacheProperties, new SimpleMeterRegistry());
+        bookmarkRepository = new BookmarkRepository(jdbcClient, transactionManager, bookmarkCache, new BookmarkLookupBatchProperties(true, Duration.ofNanos(200_000), 64),
+                new BookmarkQueryObserver(ObservationRegistry.NOOP, new SimpleMeterRegistry()), ReadYourWrites.NONE);
+        var jsonMapper = JsonMapper.builder().build();
+        var bookmarkCopyImporter = new BookmarkCopyImporter(dataSource, jdbcClient, jsonMapper, bookmarkCache,
+                new BookmarkPartitionProperties(true, 3, Duration.ofHours(6)), ReadYourWrites.NONE);
+        var bookmarkCounter = new BookmarkCounter(bookmarkRepository, new BookmarkCountProperties(BookmarkCountProperties.Mode.NONE, Duration.ofSeconds(30)));
+        var bookmarkWriteBehind = new BookmarkWriteBehind(bookmarkRepository, new BookmarkWriteBehindProperties(false, 1, 1, Duration.ZERO));
+        bulkheadMeterRegistry = new SimpleMeterRegistry();
+        bookmarkBulkheads = new BookmarkBulkheads(new BookmarkBulkheadProperties(true, READ_CONCURRENCY, 200, 3, 100,
+                EXPORT_CONCURRENCY, 4, Duration.ofMillis(500)), bulkheadMeterRegistry);
+        bookmarkService = new BookmarkServiceImpl(bookmarkRepository, bookmarkCounter, bookmarkCopyImporter, bookmarkWriteBehind, bookmarkBulkheads, jsonMapper);
         System.out.println("BookmarkService initialized for testing");
     }
 
@@ -45,19 +84,47 @@ class BookmarkServiceTest extends PostgreTestContainer {
         Integer pageNumber = 0, pageSize = 5; // Adjust page size as per your test data
 
         // Act
-        ResponseEntity<?> responseEntity = bookmarkService.getAllBookmarks(pageNumber, pageSize);
+        ResponseEntity<?> responseEntity = bookmarkService.getAllBookmarks(pageNumber, pageSize, null, null);
 
         // Assertions
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
-        if (Objects.nonNull(responseEntity.getBody()) && responseEntity.getBody() instanceof Map<?, ?> body) {
-            if (body.containsKey("data") && body.get("data") instanceof List<?> bookmarks) {
-                assertThat(bookmarks.isEmpty()).isFalse();
-                assertThat(bookmarks.size()).isEqualTo(5);
-            }
+        if (Objects.nonNull(responseEntity.getBody()) && responseEntity.getBody() instanceof BookmarkResponse.Page(List<Bookmark> bookmarks, String nextCursor, Long total)) {
+            assertThat(bookmarks.isEmpty()).isFalse();
+            assertThat(bookmarks.size()).isEqualTo(5);
+            assertThat(nextCursor).isNull();
+            assertThat(total).isNull();
         }
     }
 
+    @Test
+    void getAllBookmarksWithTotal() {
+        // Arrange
+        List<Bookmark> bookmarkList = Instancio.ofList(Bookmark.class)
+                .size(7)
+                .generate(field(Bookmark::createdAt), gen -> gen.temporal().localDateTime())
+                .create();
+        bookmarkList.forEach(bookmarkRepository::save);
+        long rows = bookmarkRepository.count();
+
+        // Act
+        ResponseEntity<?> exact = bookmarkService.getAllBookmarks(0, 5, "exact", null);
+        ResponseEntity<?> estimate = bookmarkService.getAllBookmarks(0, 5, "estimate", null);
+        ResponseEntity<?> none = bookmarkService.getAllBookmarks(0, 5, null, null);
+        ResponseEntity<?> invalid = bookmarkService.getAllBookmarks(0, 5, "sometimes", null);
+
+        // Assertions
+        assertThat(exact.getBody()).isInstanceOfSatisfying(BookmarkResponse.Page.class,
+                page -> assertThat(page.total()).isEqualTo(rows));
+        // Either the planner estimate or, while the table has never been analyzed, the cached exact count
+        assertThat(estimate.getBody()).isInstanceOfSatisfying(BookmarkResponse.Page.class,
+                page -> assertThat(page.total()).isNotNull());
+        assertThat(none.getBody()).isInstanceOfSatisfying(BookmarkResponse.Page.class,
+                page -> assertThat(page.total()).isNull());
+        assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(invalid.getBody()).isEqualTo(new BookmarkResponse.Failure("total must be one of none, estimate, exact"));
+    }
+
     @Test
     void getBookmarkById() {
         // Arrange
@@ -67,23 +134,90 @@ class BookmarkServiceTest extends PostgreTestContainer {
         Long id = bookmarkRepository.save(bookmarkData);
 
         // Act
-        ResponseEntity<?> responseEntity = bookmarkService.getBookmarkById(id);
+        ResponseEntity<?> responseEntity = bookmarkService.getBookmarkById(id, null);
 
         // Assertions
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
-        if (Objects.nonNull(responseEntity.getBody()) && responseEntity.getBody() instanceof Map<?, ?> body) {
-            if (body.containsKey("data") && body.get("data") instanceof Bookmark bookmark) {
-                assertThat(bookmark).isNotNull();
-                assertThat(bookmark.id()).isEqualTo(id);
-            }
+        if (Objects.nonNull(responseEntity.getBody()) && responseEntity.getBody() instanceof BookmarkResponse.Item(Bookmark bookmark)) {
+            assertThat(bookmark).isNotNull();
+            assertThat(bookmark.id()).isEqualTo(id);
+        }
+    }
+
+    @Test
+    void getBookmarkByIdShouldBeNotModifiedForMatchingETag() {
+        // Arrange
+        Bookmark bookmarkData = Instancio.of(Bookmark.class)
+                .generate(field(Bookmark::createdAt), gen -> gen.temporal().localDateTime())
+                .create();
+        Long id = bookmarkRepository.save(bookmarkData);
+        String eTag = bookmarkService.getBookmarkById(id, null).getHeaders().getETag();
+
+        // Act
+        ResponseEntity<?> notModified = bookmarkService.getBookmarkById(id, eTag);
+        bookmarkService.updateBookmark(new Bookmark(id, "Updated Title", "https://etag-updated.com", LocalDateTime.now()));
+        ResponseEntity<?> modified = bookmarkService.getBookmarkById(id, eTag);
+
+        // Assertions
+        assertThat(eTag).isNotNull();
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getBody()).isNull();
+        assertThat(modified.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(modified.getHeaders().getETag()).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void getBookmarkByIdShouldAdmitOnlyCacheMissesWhenNoReadPermitFreesUp() {
+        // Arrange
+        Long id = bookmarkRepository.save(new Bookmark(null, "Cached", "https://cached.com", null));
+        bookmarkService.getBookmarkById(id, null);
+        List<BookmarkBulkheads.Admission> held = new ArrayList<>();
+        for (int i = 0; i < READ_CONCURRENCY; i++) {
+            held.add(bookmarkBulkheads.read());
+        }
+
+        // Act
+        ResponseEntity<?> cacheHit;
+        ResponseEntity<?> cacheMiss;
+        try {
+            cacheHit = bookmarkService.getBookmarkById(id, null);
+            cacheMiss = bookmarkService.getBookmarkById(Long.MAX_VALUE, null);
+        } finally {
+            held.forEach(BookmarkBulkheads.Admission::close);
         }
+
+        // Assertions
+        assertThat(cacheHit.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(cacheMiss.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void getAllBookmarksShouldBeNotModifiedUntilTheTableChanges() {
+        // Arrange
+        List<Bookmark> bookmarkList = Instancio.ofList(Bookmark.class)
+                .size(3)
+                .generate(field(Bookmark::createdAt), gen -> gen.temporal().localDateTime())
+                .create();
+        bookmarkList.forEach(bookmarkRepository::save);
+        String eTag = bookmarkService.getAllBookmarks(0, 5, null, null).getHeaders().getETag();
+
+        // Act
+        ResponseEntity<?> notModified = bookmarkService.getAllBookmarks(0, 5, null, eTag);
+        bookmarkRepository.deleteById(bookmarkRepository.findAll(0, 1).getFirst().id());
+        ResponseEntity<?> modified = bookmarkService.getAllBookmarks(0, 5, null, eTag);
+
+        // Assertions
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(modified.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(modified.getHeaders().getETag()).isNotEqualTo(eTag);
     }
 
     @Test
     void createBookmark() {
         // Arrange
         Bookmark bookmarkData = Instancio.of(Bookmark.class)
+                .generate(field(Bookmark::url), gen -> gen.string().prefix("https://").suffix(".com").lowerCase().length(10))
                 .generate(field(Bookmark::createdAt), gen -> gen.temporal().localDateTime())
                 .create();
         // Act
@@ -92,14 +226,84 @@ class BookmarkServiceTest extends PostgreTestContainer {
         // Assertions
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.CREATED);
-        if (Objects.nonNull(responseEntity.getBody()) && responseEntity.getBody() instanceof Map<?, ?> body) {
-            if (body.containsKey("id") && body.get("id") instanceof Long id) {
-                assertThat(id).isNotNull();
-            }
-            if (body.containsKey("message") && body.get("message") instanceof String message) {
-                assertThat(message).isEqualTo("Bookmark created successfully");
-            }
+        if (Objects.nonNull(responseEntity.getBody()) && responseEntity.getBody() instanceof BookmarkResponse.Created(Long id, String message)) {
+            assertThat(id).isNotNull();
+            assertThat(message).isEqualTo("Bookmark created successfully");
+        }
+    }
+
+    @Test
+    void createBookmarkShouldConflictOnDuplicateUrl() {
+        // Arrange
+        Bookmark bookmarkData = new Bookmark(null, "Title", "https://duplicate-create.com", null);
+        bookmarkService.createBookmark(bookmarkData);
+
+        // Act
+        ResponseEntity<?> responseEntity = bookmarkService.createBookmark(bookmarkData);
+
+        // Assertions
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(responseEntity.getBody())
+                .isEqualTo(new BookmarkResponse.Failure("Bookmark already exists with URL: https://duplicate-create.com"));
+    }
+
+    @Test
+    void createBookmarkShouldRejectInvalidUrl() {
+        // Arrange
+        Bookmark bookmarkData = new Bookmark(null, "Title", "javascript:alert(1)", null);
+
+        // Act
+        ResponseEntity<?> responseEntity = bookmarkService.createBookmark(bookmarkData);
+
+        // Assertions
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(responseEntity.getBody()).isEqualTo(new BookmarkResponse.Failure("URL must start with http:// or https://"));
+    }
+
+    @Test
+    void searchBookmarksShouldRejectPageSizeAboveTheMaximum() {
+        // Act
+        ResponseEntity<?> responseEntity = bookmarkService.searchBookmarks("spring", null, Integer.MAX_VALUE);
+
+        // Assertions
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(responseEntity.getBody()).isEqualTo(new BookmarkResponse.Failure("pageSize must not exceed 1000"));
+    }
+
+    @Test
+    void streamAllBookmarksShouldHoldItsReadPermitUntilTheBodyIsWritten() throws IOException {
+        // Arrange
+        bookmarkRepository.save(new Bookmark(null, "Streamed", "https://streamed.com", null));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> responseEntity = bookmarkService.streamAllBookmarks(0, 1, null);
+
+        // Assertions
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(activeReads()).isEqualTo(1);
+        Objects.requireNonNull(responseEntity.getBody()).writeTo(new ByteArrayOutputStream());
+        assertThat(activeReads()).isZero();
+    }
+
+    @Test
+    void exportBookmarksShouldBeRejectedWhenNoExportPermitFreesUp() {
+        // Arrange
+        List<BookmarkBulkheads.Admission> held = new ArrayList<>();
+        for (int i = 0; i < EXPORT_CONCURRENCY; i++) {
+            held.add(bookmarkBulkheads.export());
+        }
+
+        // Act
+        ResponseEntity<StreamingResponseBody> responseEntity;
+        try {
+            responseEntity = bookmarkService.exportBookmarks();
+        } finally {
+            held.forEach(BookmarkBulkheads.Admission::close);
         }
+
+        // Assertions
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
     }
 
     @Test
@@ -120,10 +324,8 @@ class BookmarkServiceTest extends PostgreTestContainer {
         // Assertions
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
-        if (Objects.nonNull(responseEntity.getBody()) && responseEntity.getBody() instanceof Map<?, ?> body) {
-            if (body.containsKey("message") && body.get("message") instanceof String message) {
-                assertThat(message).isEqualTo("Bookmark updated successfully");
-            }
+        if (Objects.nonNull(responseEntity.getBody()) && responseEntity.getBody() instanceof BookmarkResponse.Message(String message)) {
+            assertThat(message).isEqualTo("Bookmark updated successfully");
         }
     }
 
@@ -141,10 +343,12 @@ class BookmarkServiceTest extends PostgreTestContainer {
         // Assertions
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
-        if (Objects.nonNull(responseEntity.getBody()) && responseEntity.getBody() instanceof Map<?, ?> body) {
-            if (body.containsKey("message") && body.get("message") instanceof String message) {
-                assertThat(message).isEqualTo("Bookmark deleted successfully");
-            }
+        if (Objects.nonNull(responseEntity.getBody()) && responseEntity.getBody() instanceof BookmarkResponse.Message(String message)) {
+            assertThat(message).isEqualTo("Bookmark deleted successfully");
         }
     }
+
+    private double activeReads() {
+        return bulkheadMeterRegistry.get(BookmarkBulkheads.ACTIVE_GAUGE_NAME).tag("bulkhead", "read").gauge().value();
+    }
 }
@@ -0,0 +1,117 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.CapturedStatement;
+import io.akikr.demopostgredbapp.config.SlowQueryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookmarkSlowQueryLogTest {
+
+    private static final String SELECT_BOOKMARKS_QUERY = "SELECT id FROM bookmarks OFFSET :offset LIMIT :limit";
+
+    private final JdbcClient jdbcClient = mock(JdbcClient.class, RETURNS_DEEP_STUBS);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    private BookmarkSlowQueryLog slowQueryLog;
+
+    @Test
+    void shouldCaptureSlowQueriesWithRedactedParameters() {
+        // Arrange
+        var queryObserver = queryObserverWith(new SlowQueryProperties(true, Duration.ZERO, 0.0, 2));
+        var parameters = new MapSqlParameterSource()
+                .addValue("offset", 5000)
+                .addValue("title", "private title")
+                .addValue("createdAt", LocalDateTime.now())
+                .addValue("ids", new Long[]{1L, 2L, 3L});
+
+        // Act
+        runStatement(queryObserver, "count", "SELECT count(*) FROM bookmarks", new MapSqlParameterSource());
+        runStatement(queryObserver, "update", "UPDATE bookmarks SET title = :title", parameters);
+        runStatement(queryObserver, "findAll", SELECT_BOOKMARKS_QUERY, parameters);
+
+        // Assert
+        // Newest first, the oldest one was dropped at max-captured
+        List<BookmarkSlowQueryLog.SlowQuery> slowQueries = slowQueryLog.slowQueries();
+        assertThat(slowQueries).extracting(BookmarkSlowQueryLog.SlowQuery::operation).containsExactly("findAll", "update");
+        var slowQuery = slowQueries.getFirst();
+        assertThat(slowQuery.sql()).isEqualTo(SELECT_BOOKMARKS_QUERY);
+        assertThat(slowQuery.queryName()).isEqualTo("SELECT_BOOKMARKS_QUERY");
+        assertThat(slowQuery.rowCount()).isEqualTo("1");
+        assertThat(slowQuery.parameters())
+                .containsEntry("offset", 5000)
+                .containsEntry("title", "***")
+                .containsEntry("createdAt", "***")
+                .containsEntry("ids", "*** (3 values)");
+        assertThat(slowQuery.plan()).isNull();
+    }
+
+    @Test
+    void shouldIgnoreQueriesBelowThreshold() {
+        // Arrange
+        var queryObserver = queryObserverWith(new SlowQueryProperties(true, Duration.ofHours(1), 1.0, 10));
+
+        // Act
+        runStatement(queryObserver, "findAll", SELECT_BOOKMARKS_QUERY, new MapSqlParameterSource());
+
+        // Assert
+        assertThat(slowQueryLog.slowQueries()).isEmpty();
+    }
+
+    @Test
+    void shouldExplainSampledSlowSelects() throws InterruptedException {
+        // Arrange
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(jdbcClient.sql(anyString()).paramSource(any()).query(String.class).list())
+                .thenReturn(List.of("Limit", "  ->  Index Scan using idx_bookmarks_created_id on bookmarks"));
+        var queryObserver = queryObserverWith(new SlowQueryProperties(true, Duration.ZERO, 1.0, 10));
+
+        // Act
+        runStatement(queryObserver, "findAll", SELECT_BOOKMARKS_QUERY, new MapSqlParameterSource("offset", 5000));
+
+        // Assert
+        verify(jdbcClient, timeout(2000)).sql("EXPLAIN (ANALYZE, BUFFERS) " + SELECT_BOOKMARKS_QUERY);
+        // A rollback-only status makes the transaction manager roll back on commit
+        verify(transactionManager, timeout(2000)).commit(argThat(TransactionStatus::isRollbackOnly));
+        String plan = null;
+        for (int attempt = 0; attempt < 100 && plan == null; attempt++) {
+            plan = slowQueryLog.slowQueries().getFirst().plan();
+            Thread.sleep(20);
+        }
+        assertThat(plan).isEqualTo("Limit\n  ->  Index Scan using idx_bookmarks_created_id on bookmarks");
+    }
+
+    private BookmarkQueryObserver queryObserverWith(SlowQueryProperties slowQueryProperties) {
+        slowQueryLog = new BookmarkSlowQueryLog(slowQueryProperties, jdbcClient, transactionManager);
+        observationRegistry.observationConfig().observationHandler(slowQueryLog);
+        return new BookmarkQueryObserver(observationRegistry, new SimpleMeterRegistry());
+    }
+
+    // Stands in for StatementCapturingJdbcTemplate, which attaches the statement to the current observation
+    private void runStatement(BookmarkQueryObserver queryObserver, String operation, String sql, MapSqlParameterSource parameters) {
+        String queryName = operation.equals("findAll") ? "SELECT_BOOKMARKS_QUERY" : operation.toUpperCase() + "_QUERY";
+        queryObserver.observe(operation, queryName, () -> {
+            observationRegistry.getCurrentObservation().getContext().put(CapturedStatement.class, new CapturedStatement(sql, parameters));
+            return List.of(1L);
+        }, List::size);
+    }
+}
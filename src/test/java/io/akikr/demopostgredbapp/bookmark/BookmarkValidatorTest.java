@@ -0,0 +1,52 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookmarkValidatorTest {
+
+    @Test
+    void shouldAcceptHttpAndHttpsBookmarks() {
+        // Act & Assert
+        assertThat(BookmarkValidator.violationOf(bookmark("Demo-Title", "https://demo-url"))).isNull();
+        assertThat(BookmarkValidator.violationOf(bookmark("Demo-Title", "HTTP://example.com/a/b?c=d#e"))).isNull();
+        assertThat(BookmarkValidator.violationOf(bookmark("T".repeat(BookmarkValidator.MAX_TITLE_LENGTH), "https://example.com")))
+                .isNull();
+    }
+
+    @Test
+    void shouldRejectMissingOrTooLongTitle() {
+        // Act & Assert
+        assertThat(BookmarkValidator.violationOf(bookmark(null, "https://example.com"))).isEqualTo("Title cannot be NULL");
+        assertThat(BookmarkValidator.violationOf(bookmark(" ", "https://example.com"))).isEqualTo("Title cannot be Blank");
+        assertThat(BookmarkValidator.violationOf(bookmark("T".repeat(BookmarkValidator.MAX_TITLE_LENGTH + 1), "https://example.com")))
+                .isEqualTo("Title cannot be longer than 500 characters");
+    }
+
+    @Test
+    void shouldRejectInvalidUrl() {
+        // Act & Assert
+        assertThat(BookmarkValidator.violationOf(bookmark("Title", null))).isEqualTo("URL cannot be NULL");
+        assertThat(BookmarkValidator.violationOf(bookmark("Title", ""))).isEqualTo("URL cannot be Blank");
+        assertThat(BookmarkValidator.violationOf(bookmark("Title", "https://example.com/" + "a".repeat(BookmarkValidator.MAX_URL_LENGTH))))
+                .isEqualTo("URL cannot be longer than 2048 characters");
+        assertThat(BookmarkValidator.violationOf(bookmark("Title", "https://example.com/a b"))).startsWith("URL is not valid");
+        assertThat(BookmarkValidator.violationOf(bookmark("Title", "ftp://example.com"))).isEqualTo("URL must start with http:// or https://");
+        assertThat(BookmarkValidator.violationOf(bookmark("Title", "example.com"))).isEqualTo("URL must start with http:// or https://");
+        assertThat(BookmarkValidator.violationOf(bookmark("Title", "https:///path"))).isEqualTo("URL must have a host");
+    }
+
+    @Test
+    void shouldThrowFirstViolation() {
+        // Act & Assert
+        assertThatThrownBy(() -> BookmarkValidator.validate(bookmark("", "not a url")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Title cannot be Blank");
+    }
+
+    private static Bookmark bookmark(String title, String url) {
+        return new Bookmark(null, title, url, null);
+    }
+}
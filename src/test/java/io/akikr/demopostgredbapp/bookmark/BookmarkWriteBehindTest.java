@@ -0,0 +1,147 @@
+package io.akikr.demopostgredbapp.bookmark;
+
+import io.akikr.demopostgredbapp.config.BookmarkWriteBehindProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.IntStream;
+
+import static java.util.Objects.nonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookmarkWriteBehindTest {
+
+    private final BookmarkRepository bookmarkRepository = mock(BookmarkRepository.class);
+    private BookmarkWriteBehind bookmarkWriteBehind;
+
+    @AfterEach
+    void tearDown() {
+        if (nonNull(bookmarkWriteBehind)) {
+            bookmarkWriteBehind.stop();
+        }
+    }
+
+    @Test
+    void shouldGroupConcurrentCreatesIntoOneCommit() {
+        // Arrange
+        // Ids are handed out in order, the second 'dup-url' loses the conflict
+        when(bookmarkRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Bookmark> bookmarks = invocation.getArgument(0);
+            return IntStream.range(0, bookmarks.size())
+                    .mapToObj(i -> i == 3 ? null : 100L + i)
+                    .toList();
+        });
+        bookmarkWriteBehind = start(new BookmarkWriteBehindProperties(true, 100, 4, Duration.ofSeconds(10)));
+
+        // Act
+        // With a 10s max wait this only completes because a full group is written right away
+        List<CompletableFuture<Long>> writes = List.of(
+                bookmarkWriteBehind.submit(bookmark("url-1")),
+                bookmarkWriteBehind.submit(bookmark("dup-url")),
+                bookmarkWriteBehind.submit(bookmark("url-3")),
+                bookmarkWriteBehind.submit(bookmark("dup-url")));
+
+        // Assert
+        assertThat(writes).extracting(CompletableFuture::join).containsExactly(100L, 101L, 102L, null);
+        verify(bookmarkRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void shouldRejectWritesWhenQueueIsFull() throws InterruptedException {
+        // Arrange
+        var writing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(bookmarkRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return List.of(1L);
+        });
+        bookmarkWriteBehind = start(new BookmarkWriteBehindProperties(true, 1, 1, Duration.ZERO));
+
+        // Act
+        var inGroupCommit = bookmarkWriteBehind.submit(bookmark("url-1"));
+        writing.await();
+        var queued = bookmarkWriteBehind.submit(bookmark("url-2"));
+
+        // Assert
+        assertThatThrownBy(() -> bookmarkWriteBehind.submit(bookmark("url-3")))
+                .isInstanceOf(RejectedExecutionException.class)
+                .hasMessage("Too many pending bookmark writes");
+        release.countDown();
+        assertThat(inGroupCommit.join()).isEqualTo(1L);
+        assertThat(queued.join()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldFlushPendingWritesOnStop() {
+        // Arrange
+        when(bookmarkRepository.saveAll(anyList())).thenAnswer(invocation -> List.of(7L, 8L));
+        bookmarkWriteBehind = start(new BookmarkWriteBehindProperties(true, 100, 100, Duration.ofSeconds(10)));
+        var first = bookmarkWriteBehind.submit(bookmark("url-1"));
+        var second = bookmarkWriteBehind.submit(bookmark("url-2"));
+
+        // Act
+        bookmarkWriteBehind.stop();
+
+        // Assert
+        assertThat(first).isCompletedWithValue(7L);
+        assertThat(second).isCompletedWithValue(8L);
+        assertThatThrownBy(() -> bookmarkWriteBehind.save(bookmark("url-3")))
+                .isInstanceOf(RejectedExecutionException.class)
+                .hasMessage("Bookmark writer is not running");
+    }
+
+    @Test
+    void shouldRetryOneByOneWhenGroupCommitFails() {
+        // Arrange
+        when(bookmarkRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Bookmark> bookmarks = invocation.getArgument(0);
+            if (bookmarks.stream().anyMatch(bookmark -> bookmark.title() == null)) {
+                throw new IllegalStateException("null value in column \"title\"");
+            }
+            return List.of(Long.parseLong(bookmarks.getFirst().url()));
+        });
+        bookmarkWriteBehind = start(new BookmarkWriteBehindProperties(true, 100, 3, Duration.ofSeconds(10)));
+
+        // Act
+        var first = bookmarkWriteBehind.submit(bookmark("1"));
+        var invalid = bookmarkWriteBehind.submit(new Bookmark(null, null, "2", null));
+        var third = bookmarkWriteBehind.submit(bookmark("3"));
+
+        // Assert
+        assertThat(first.join()).isEqualTo(1L);
+        assertThat(third.join()).isEqualTo(3L);
+        assertThatThrownBy(invalid::join).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldNotStartWhenDisabled() {
+        // Arrange
+        bookmarkWriteBehind = start(new BookmarkWriteBehindProperties(false, 1, 1, Duration.ZERO));
+
+        // Act & Assert
+        assertThat(bookmarkWriteBehind.isEnabled()).isFalse();
+        assertThat(bookmarkWriteBehind.isRunning()).isFalse();
+    }
+
+    private BookmarkWriteBehind start(BookmarkWriteBehindProperties properties) {
+        var writeBehind = new BookmarkWriteBehind(bookmarkRepository, properties);
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private static Bookmark bookmark(String url) {
+        return new Bookmark(null, "Title-" + url, url, null);
+    }
+}
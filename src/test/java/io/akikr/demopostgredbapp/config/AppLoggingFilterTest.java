@@ -0,0 +1,156 @@
+package io.akikr.demopostgredbapp.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AppLoggingFilterTest {
+
+    private static final String RESPONSE_BODY = "{\"data\":\"" + "x".repeat(500) + "\"}";
+
+    private ListAppender<ILoggingEvent> accessEvents;
+
+    @BeforeEach
+    void setUp() {
+        // The filter only tees when its logger would actually emit the bodies
+        ((Logger) LoggerFactory.getLogger(AppLoggingFilter.class)).setLevel(Level.DEBUG);
+        var accessLogger = (Logger) LoggerFactory.getLogger("io.akikr.demopostgredbapp.access");
+        accessLogger.setLevel(Level.INFO);
+        accessEvents = new ListAppender<>();
+        accessEvents.start();
+        accessLogger.addAppender(accessEvents);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ((Logger) LoggerFactory.getLogger("io.akikr.demopostgredbapp.access")).detachAppender(accessEvents);
+    }
+
+    @Test
+    void shouldNotWrapWhenLoggingIsDisabled() throws Exception {
+        // Arrange
+        var filter = new AppLoggingFilter(properties(false, 1.0, Map.of()));
+        var request = new MockHttpServletRequest("GET", "/v1/bookmarks");
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain();
+
+        // Act
+        filter.doFilter(request, response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isSameAs(request);
+        assertThat(chain.getResponse()).isSameAs(response);
+    }
+
+    @Test
+    void shouldStreamWholeBodyWhileCapturingBoundedPrefix() throws Exception {
+        // Arrange
+        var filter = new AppLoggingFilter(properties(true, 1.0, Map.of()));
+        var request = new MockHttpServletRequest("GET", "/v1/bookmarks");
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain(responseWritingServlet());
+
+        // Act
+        filter.doFilter(request, response, chain);
+
+        // Assert
+        assertThat(chain.getResponse()).isInstanceOf(BoundedTeeResponseWrapper.class);
+        var captured = ((BoundedTeeResponseWrapper) chain.getResponse()).body();
+        assertThat(response.getContentAsString()).isEqualTo(RESPONSE_BODY);
+        assertThat(captured.total()).isEqualTo(RESPONSE_BODY.length());
+        assertThat(captured.isTruncated()).isTrue();
+        assertThat(captured.toString(StandardCharsets.UTF_8)).hasSize(100).isEqualTo(RESPONSE_BODY.substring(0, 100));
+    }
+
+    @Test
+    void shouldSkipPathsSampledAtZero() throws Exception {
+        // Arrange
+        var filter = new AppLoggingFilter(new AppLoggingProperties(true, false, true, true, 100,
+                List.of(), 1.0, Map.of("/v1/bookmarks/{id}", 0.0)));
+        var request = new MockHttpServletRequest("GET", "/v1/bookmarks/1");
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain();
+
+        // Act
+        filter.doFilter(request, response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isSameAs(request);
+    }
+
+    @Test
+    void shouldEmitOneAccessLogEventWithKeyValuePairs() throws Exception {
+        // Arrange
+        var filter = new AppLoggingFilter(properties(true, 1.0, Map.of()));
+        var request = new MockHttpServletRequest("GET", "/v1/bookmarks/1");
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain(responseWritingServlet());
+
+        // Act
+        filter.doFilter(request, response, chain);
+
+        // Assert
+        assertThat(accessEvents.list).singleElement().satisfies(event -> {
+            Map<String, Object> fields = event.getKeyValuePairs().stream()
+                    .collect(Collectors.toMap(pair -> pair.key, pair -> pair.value));
+            assertThat(fields).containsEntry("http.request.method", "GET")
+                    .containsEntry("url.path", "/v1/bookmarks/1")
+                    .containsEntry("http.response.status_code", 200)
+                    .containsEntry("http.response.body.bytes", (long) RESPONSE_BODY.length())
+                    .containsKey("event.duration");
+        });
+    }
+
+    @Test
+    void shouldOnlyCountResponseBytesWhenResponseBodyIsNotIncluded() throws Exception {
+        // Arrange
+        var filter = new AppLoggingFilter(new AppLoggingProperties(true, true, true, false, 100,
+                List.of(), 1.0, Map.of()));
+        var request = new MockHttpServletRequest("GET", "/v1/bookmarks");
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain(responseWritingServlet());
+
+        // Act
+        filter.doFilter(request, response, chain);
+
+        // Assert
+        var captured = ((BoundedTeeResponseWrapper) chain.getResponse()).body();
+        assertThat(response.getContentAsString()).isEqualTo(RESPONSE_BODY);
+        assertThat(captured.total()).isEqualTo(RESPONSE_BODY.length());
+        assertThat(captured.toString(StandardCharsets.UTF_8)).isEmpty();
+    }
+
+    private static HttpServlet responseWritingServlet() {
+        return new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse res) throws IOException {
+                res.setCharacterEncoding("UTF-8");
+                res.getOutputStream().write(RESPONSE_BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    private static AppLoggingProperties properties(boolean enabled, double sampleRate, Map<String, Double> pathSampleRates) {
+        return new AppLoggingProperties(enabled, enabled, true, true, 100,
+                List.of("/v1/bookmarks/export"), sampleRate, pathSampleRates);
+    }
+}
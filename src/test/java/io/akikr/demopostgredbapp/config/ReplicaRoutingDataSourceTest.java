@@ -0,0 +1,136 @@
+package io.akikr.demopostgredbapp.config;
+
+import io.akikr.demopostgredbapp.PostgreReplicaTestContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReplicaRoutingDataSourceTest extends PostgreReplicaTestContainer {
+
+    private static final String CURRENT_DATABASE_QUERY = "SELECT current_database()";
+
+    @Autowired
+    private JdbcClient jdbcClient;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void shouldRouteReadOnlyTransactionsToReplica() {
+        // Act
+        String readOnlyDatabase = currentDatabase(true);
+        String readWriteDatabase = currentDatabase(false);
+
+        // Assert
+        assertThat(readOnlyDatabase).isEqualTo(replicaDatabaseName());
+        assertThat(readWriteDatabase).isEqualTo(primaryDatabaseName());
+    }
+
+    @Test
+    void shouldReadOwnWritesFromPrimaryWithinWindow() {
+        // Arrange
+        // A committed read-write transaction counts as a write of 'client-a'
+        bindRequest("client-a");
+        currentDatabase(false);
+
+        // Act
+        String writerDatabase = currentDatabase(true);
+        bindRequest("client-b");
+        String otherClientDatabase = currentDatabase(true);
+
+        // Assert
+        assertThat(writerDatabase).isEqualTo(primaryDatabaseName());
+        assertThat(otherClientDatabase).isEqualTo(replicaDatabaseName());
+    }
+
+    @Test
+    void shouldLoadBookmarkByIdFromReplica() throws Exception {
+        // Arrange
+        // The row only exists on the replica, so it can only be found if the lookup is routed there
+        String url = "https://replica.example.com/" + UUID.randomUUID();
+        Long id = replicaJdbcClient()
+                .sql("INSERT INTO bookmarks (title, url, created_at) VALUES (:title, :url, :createdAt) RETURNING id")
+                .param("title", "Replica only")
+                .param("url", url)
+                .param("createdAt", LocalDateTime.now())
+                .query(Long.class)
+                .single();
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/bookmarks/" + id)
+                        .header(ReplicaRoutingDataSource.CLIENT_ID_HEADER, "client-" + UUID.randomUUID()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.url").value(url));
+    }
+
+    @Test
+    void shouldLoadOwnBookmarkByIdFromPrimaryWithLookupBatching() throws Exception {
+        // Arrange
+        // Lookup batching is on by default, the row only exists on the primary until the client's window ends
+        String clientId = "client-" + UUID.randomUUID();
+        String url = "https://primary.example.com/" + UUID.randomUUID();
+        mockMvc.perform(post("/v1/bookmarks")
+                        .header(ReplicaRoutingDataSource.CLIENT_ID_HEADER, clientId)
+                        .contentType("application/json")
+                        .content("""
+                        {
+                          "title":"Primary only",
+                          "url":"%s"
+                        }
+                        """.formatted(url)))
+                .andExpect(status().isCreated());
+        Long id = jdbcClient.sql("SELECT id FROM bookmarks WHERE url = :url")
+                .param("url", url)
+                .query(Long.class)
+                .single();
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/bookmarks/" + id)
+                        .header(ReplicaRoutingDataSource.CLIENT_ID_HEADER, "client-" + UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/v1/bookmarks/" + id)
+                        .header(ReplicaRoutingDataSource.CLIENT_ID_HEADER, clientId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.url").value(url));
+    }
+
+    private String currentDatabase(boolean readOnly) {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> jdbcClient.sql(CURRENT_DATABASE_QUERY).query(String.class).single());
+    }
+
+    private static void bindRequest(String clientId) {
+        var request = new MockHttpServletRequest();
+        request.addHeader(ReplicaRoutingDataSource.CLIENT_ID_HEADER, clientId);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+}